@@ -0,0 +1,48 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the indexes the MovieInfoRepository finders rely on, without them every finder is a collection scan.
+ * ensureIndex is a no-op when the index already exists, so this is safe to run on every startup.
+ */
+@Component
+@Slf4j
+public class MongoIndexInitializer {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensureIndexes()
+                .subscribe(unused -> { }, ex -> log.error("Failed to create the MovieInfo indexes : {}", ex.getMessage(), ex));
+    }
+
+    public Mono<Void> ensureIndexes() {
+        var indexOps = reactiveMongoTemplate.indexOps(MovieInfo.class);
+        return Flux.concat(
+                        // year is the prefix, so this one also serves findByYear
+                        indexOps.ensureIndex(new Index()
+                                .on("year", Sort.Direction.ASC)
+                                .on("name", Sort.Direction.ASC)
+                                .named("year_name")),
+                        indexOps.ensureIndex(new Index()
+                                .on("name", Sort.Direction.ASC)
+                                .named("name")))
+                .doOnNext(indexName -> log.info("Index ensured : {}", indexName))
+                .then();
+    }
+}
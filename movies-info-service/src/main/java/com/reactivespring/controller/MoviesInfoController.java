@@ -1,17 +1,30 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.event.MovieInfoEventPublisher;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.PageCursor;
+import com.reactivespring.util.ReactiveTracing;
+import com.reactivespring.util.RequestDeadline;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @RestController
 @Slf4j
@@ -20,11 +33,19 @@ public class MoviesInfoController {
 
     private MovieInfoService movieInfoService;
 
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().all();
+    private MovieInfoEventPublisher movieInfoEventPublisher;
+
+    private ReactiveTracing reactiveTracing;
+
+    @Value("${movieInfo.page.maxLimit:500}")
+    private int maxPageLimit;
 
     // you can use autowiring, Dilip recommends this
-    public MoviesInfoController(MovieInfoService movieInfoService) {
+    public MoviesInfoController(MovieInfoService movieInfoService, MovieInfoEventPublisher movieInfoEventPublisher,
+                                ReactiveTracing reactiveTracing) {
         this.movieInfoService = movieInfoService;
+        this.movieInfoEventPublisher = movieInfoEventPublisher;
+        this.reactiveTracing = reactiveTracing;
     }
 
     @PostMapping("/movieinfos")
@@ -34,41 +55,152 @@ public class MoviesInfoController {
                 // anytime we add movie, we publish an event
                 .doOnNext(savedInfo -> {
                     // publishing an event
-                    movieInfoSink.tryEmitNext(savedInfo);
+                    movieInfoEventPublisher.publishLocal(MovieInfoEvent.Type.INSERT, savedInfo);
+                });
+    }
+
+    /**
+     * Bulk insert, the body is a stream of movie infos (NDJSON or a JSON array).
+     * Answers with one BulkItemResult per element as the batches get written.
+     */
+    @PostMapping(value = "/movieinfos/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkItemResult<MovieInfo>> addMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return movieInfoService.addMovieInfos(movieInfos)
+                .doOnNext(result -> {
+                    if (result.getStatus() == BulkItemResult.Status.CREATED) {
+                        movieInfoEventPublisher.publishLocal(MovieInfoEvent.Type.INSERT, result.getItem());
+                    }
                 });
     }
 
     // subscriber endpoint
     // make sure to change produces
+    // ?since= (or the Last-Event-ID header) resumes after the given sequence instead of replaying the whole buffer
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getMovieInfoById() {
+    public Flux<MovieInfo> getMovieInfoById(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
         // asFlux - attaching the subscriber
-        return movieInfoSink.asFlux();
+        // deletes only carry the id, they are left out here and available on /movieinfos/events
+        return movieInfoEventPublisher.events(since != null ? since : lastEventId)
+                .filter(event -> event.getType() != MovieInfoEvent.Type.DELETE)
+                .map(MovieInfoEvent::getMovieInfo);
     }
 
+    // same stream as Server-Sent Events, every event carries its sequence as the id
+    // so a browser EventSource sends it back as Last-Event-ID when it reconnects.
+    // The event name is the operation: insert, update or delete
+    @GetMapping(value = "/movieinfos/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfo>> getMovieInfoEvents(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return movieInfoEventPublisher.events(since != null ? since : lastEventId)
+                .map(event -> ServerSentEvent.builder(event.getMovieInfo())
+                        .id(String.valueOf(event.getSequence()))
+                        .event(event.getType().name().toLowerCase())
+                        .build());
+    }
+
+    // the queries are cancelled once the deadline of the caller is reached, see RequestDeadlineFilter
     @GetMapping("/movieinfos")
-    public Flux<MovieInfo> getAllMovieInfos(
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfos(
             @RequestParam(value = "year", required = false) Integer year,
-            @RequestParam(value = "name", required = false) String name
+            @RequestParam(value = "name", required = false) String name,
+            // bulk lookup, e.g. /v1/movieinfos?ids=1,2,3
+            @RequestParam(value = "ids", required = false) List<String> ids
             ) {
+        if (ids != null) {
+            log.info("Ids are: {} ", ids);
+            return withETag(movieInfoService.getMovieInfosByIds(ids)
+                    .transform(RequestDeadline::enforce));
+        }
         if (year != null) {
             log.info("Year is: {} ", year);
-            return movieInfoService.getMovieInfoByYear(year);
+            return withETag(movieInfoService.getMovieInfoByYear(year)
+                    .transform(RequestDeadline::enforce));
         }
         if (name != null) {
             log.info("Name is: {} ", name);
-            return movieInfoService.getMovieInfoByName(name);
+            return withETag(movieInfoService.getMovieInfoByName(name)
+                    .transform(RequestDeadline::enforce));
         }
 
-        return movieInfoService.getAllMovieInfos().log();
+        // the whole collection is streamed as it is read, without an ETag
+        return Mono.just(ResponseEntity.ok().body(movieInfoService.getAllMovieInfos()
+                .transform(RequestDeadline::enforce)
+                // off unless switched on, see ReactiveTracing
+                .transform(reactiveTracing.flux("movieInfos.getAll"))));
+    }
+
+    /**
+     * The filtered lists are collected for their ETag, computed from the movie infos they hold.
+     * An If-None-Match that still matches gets a 304 without a body.
+     * The same ETag is sent for the JSON, Smile and compressed forms of the list, hence the Vary header.
+     */
+    private Mono<ResponseEntity<Flux<MovieInfo>>> withETag(Flux<MovieInfo> movieInfos) {
+        return movieInfos
+                .collectList()
+                .map(list -> ResponseEntity.ok()
+                        .eTag(ETags.of(list, MoviesInfoController::eTagValues))
+                        .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                        .body(Flux.fromIterable(list)));
+    }
+
+    /**
+     * What the ETag of a movie info is computed from: the version alone starts over at 0 when it is posted again
+     * under the same id, or deleted and created again
+     */
+    private static List<?> eTagValues(MovieInfo movieInfo) {
+        return Arrays.asList(movieInfo.getMovieInfoId(), movieInfo.getVersion(), movieInfo.getName(),
+                movieInfo.getYear(), movieInfo.getCast(), movieInfo.getRelease_date());
+    }
+
+    /**
+     * Keyset pagination, e.g. /v1/movieinfos?limit=50 then /v1/movieinfos?limit=50&after={X-Next-Cursor}
+     * The X-Next-Cursor header is left out on the last page.
+     */
+    @GetMapping(value = "/movieinfos", params = "limit")
+    public Mono<ResponseEntity<List<MovieInfo>>> getMovieInfosPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "after", required = false) String after) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be a positive value");
+        }
+        String afterId;
+        try {
+            afterId = PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        var pageSize = Math.min(limit, maxPageLimit);
+        // one extra element tells us if there is a next page
+        return movieInfoService.getMovieInfosPage(afterId, pageSize + 1)
+                .transform(RequestDeadline::enforce)
+                .collectList()
+                .map(movieInfos -> {
+                    if (movieInfos.size() <= pageSize) {
+                        return ResponseEntity.ok().body(movieInfos);
+                    }
+                    List<MovieInfo> page = new ArrayList<>(movieInfos.subList(0, pageSize));
+                    return ResponseEntity.ok()
+                            .header(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(page.get(pageSize - 1).getMovieInfoId()))
+                            .body(page);
+                });
     }
 
     @GetMapping("/movieinfos/{id}")
     public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
         return movieInfoService.getMovieInfoById(id)
-                .map(movieInfo -> ResponseEntity.ok().body(movieInfo))
+                .transform(RequestDeadline::enforce)
+                // 304 when the If-None-Match of the caller (movies-service revalidating its cache) still matches
+                .map(movieInfo -> ResponseEntity.ok()
+                        .eTag(ETags.ofValues(eTagValues(movieInfo).toArray()))
+                        .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                        .body(movieInfo))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(reactiveTracing.mono("movieInfos.getById"));
 
     }
     @PutMapping("/movieinfos/{id}")
@@ -78,13 +210,20 @@ public class MoviesInfoController {
      */
     public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updateMovieInfo, @PathVariable String id) {
         return movieInfoService.updateMovieInfo(updateMovieInfo, id)
+                .doOnNext(movieInfo -> movieInfoEventPublisher.publishLocal(MovieInfoEvent.Type.UPDATE, movieInfo))
                 .map(movieInfo -> ResponseEntity.ok().body(movieInfo))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build())) // if movieInfo == null or empty
-                .log();
+                .transform(reactiveTracing.mono("movieInfos.update"));
     }
     @DeleteMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return movieInfoService.deleteMovieInfo(id).log();
+        return movieInfoService.deleteMovieInfo(id)
+                // nothing was deleted, there is nothing to tell the subscribers
+                .filter(deleted -> deleted)
+                .doOnNext(deleted -> movieInfoEventPublisher.publishLocal(
+                        MovieInfoEvent.Type.DELETE, new MovieInfo(id, null, null, null, null)))
+                .then()
+                .transform(reactiveTracing.mono("movieInfos.delete"));
     }
 }
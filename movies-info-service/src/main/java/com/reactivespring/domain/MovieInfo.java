@@ -29,5 +29,13 @@ public class MovieInfo {
      */
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+    /**
+     * Bumped on every update. Send it back on a PUT to only update the version you have read,
+     * leave it out to update whatever is stored.
+     */
+    private Long version;
 
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
 }
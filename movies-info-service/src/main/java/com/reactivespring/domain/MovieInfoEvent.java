@@ -0,0 +1,24 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * MovieInfo published to the stream subscribers, tagged with a monotonically increasing sequence.
+ * The sequence is what a client sends back (Last-Event-ID or ?since=) to resume where it left off.
+ * For a DELETE only the movieInfoId of the MovieInfo is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private long sequence;
+    private Type type;
+    private MovieInfo movieInfo;
+}
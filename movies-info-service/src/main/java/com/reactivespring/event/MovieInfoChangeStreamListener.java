@@ -0,0 +1,140 @@
+package com.reactivespring.event;
+
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * One MongoDB change stream cursor per instance, feeding MovieInfoEventPublisher.
+ * The publisher's sink multicasts it to every HTTP subscriber, so the number of clients does not change the number of cursors.
+ *
+ * changestream.lag times every event from its write (the cluster time, to the second) to its publication.
+ *
+ * Change streams need a replica set, enable with movieInfo.stream.source=change-stream
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "movieInfo.stream.source", havingValue = "change-stream")
+public class MovieInfoChangeStreamListener {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MovieInfoEventPublisher movieInfoEventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    // last event we published, the cursor resumes after it when it is reopened, so nothing is lost in between
+    private volatile BsonValue resumeToken;
+    // an invalidated cursor can not be resumed, the next one has to start after the invalidate event
+    private volatile boolean invalidated;
+    private Disposable subscription;
+
+    public MovieInfoChangeStreamListener(ReactiveMongoTemplate reactiveMongoTemplate,
+                                         MovieInfoEventPublisher movieInfoEventPublisher,
+                                         MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.movieInfoEventPublisher = movieInfoEventPublisher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.defer(this::changeStream)
+                .doOnNext(this::publish)
+                // the cursor also ends without an error: invalidated by a drop or a rename of the collection,
+                // or closed on the server. Reopened with the same backoff as a failure
+                .concatWith(Mono.error(() -> new IllegalStateException("the cursor was closed")))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        // the backoff starts over once the cursor delivered an event
+                        .transientErrors(true)
+                        .doBeforeRetry(retrySignal -> log.warn("MovieInfo change stream failed, reopening : {}",
+                                retrySignal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private Flux<ChangeStreamEvent<MovieInfo>> changeStream() {
+        var options = ChangeStreamOptions.builder()
+                // updates only carry the changed fields, ask for the whole document
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            if (invalidated) {
+                options.startAfter(resumeToken);
+            } else {
+                options.resumeAfter(resumeToken);
+            }
+        }
+        var collectionName = reactiveMongoTemplate.getCollectionName(MovieInfo.class);
+        return reactiveMongoTemplate.changeStream(collectionName, options.build(), MovieInfo.class);
+    }
+
+    private void publish(ChangeStreamEvent<MovieInfo> changeStreamEvent) {
+        var operationType = changeStreamEvent.getOperationType();
+        recordLag(changeStreamEvent);
+        if (operationType != null) {
+            switch (operationType) {
+                case INSERT:
+                    movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, changeStreamEvent.getBody());
+                    break;
+                case UPDATE:
+                case REPLACE:
+                    // the document can already be gone by the time it is looked up
+                    if (changeStreamEvent.getBody() != null) {
+                        movieInfoEventPublisher.publish(MovieInfoEvent.Type.UPDATE, changeStreamEvent.getBody());
+                    }
+                    break;
+                case DELETE:
+                    movieInfoEventPublisher.publish(MovieInfoEvent.Type.DELETE,
+                            new MovieInfo(documentId(changeStreamEvent), null, null, null, null));
+                    break;
+                default:
+                    // drop, rename, invalidate... nothing to publish
+                    break;
+            }
+        }
+        resumeToken = changeStreamEvent.getResumeToken();
+        invalidated = operationType == OperationType.INVALIDATE;
+    }
+
+    private void recordLag(ChangeStreamEvent<?> changeStreamEvent) {
+        var timestamp = changeStreamEvent.getTimestamp();
+        if (timestamp == null) {
+            return;
+        }
+        Timer.builder("changestream.lag")
+                .tag("collection", reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .tag("operation", String.valueOf(changeStreamEvent.getOperationType()))
+                .register(meterRegistry)
+                .record(Duration.between(timestamp, Instant.now()));
+    }
+
+    private String documentId(ChangeStreamEvent<MovieInfo> changeStreamEvent) {
+        var id = changeStreamEvent.getRaw().getDocumentKey().get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
@@ -0,0 +1,92 @@
+package com.reactivespring.event;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+/**
+ * Holds the MovieInfo events for the stream endpoints.
+ *
+ * The replay buffer is bounded by size and by age, so the history does not grow forever
+ * and a reconnecting subscriber replays at most historySize events.
+ *
+ * movieInfo.stream.source decides where the events come from
+ * - sink (default): the writes done by this instance, see publishLocal
+ * - change-stream: the MongoDB change stream, see MovieInfoChangeStreamListener. Every replica sees every write.
+ *
+ * Every emission is counted in sink.emissions, tagged with its EmitResult, so a failed one shows up on the dashboards.
+ */
+@Component
+@Slf4j
+public class MovieInfoEventPublisher {
+
+    private final Sinks.Many<MovieInfoEvent> movieInfoSink;
+    private final boolean localEvents;
+    private final MeterRegistry meterRegistry;
+    private final Counter emitted;
+
+    // seeded from the clock, so the ids keep increasing across restarts and an old Last-Event-ID still makes sense
+    private long sequence = System.currentTimeMillis() * 1000;
+
+    public MovieInfoEventPublisher(@Value("${movieInfo.stream.historySize:1000}") int historySize,
+                                   @Value("${movieInfo.stream.maxAge:10m}") Duration maxAge,
+                                   @Value("${movieInfo.stream.source:sink}") String source,
+                                   MeterRegistry meterRegistry) {
+        this.movieInfoSink = Sinks.many().replay().limit(historySize, maxAge);
+        this.localEvents = !"change-stream".equals(source);
+        this.meterRegistry = meterRegistry;
+        this.emitted = emissionCounter(Sinks.EmitResult.OK);
+    }
+
+    /**
+     * Called by the controller after its own writes.
+     * Ignored in change-stream mode, the change stream already delivers them (and the ones of the other replicas).
+     */
+    public void publishLocal(MovieInfoEvent.Type type, MovieInfo movieInfo) {
+        if (localEvents) {
+            publish(type, movieInfo);
+        }
+    }
+
+    /**
+     * synchronized, so the sequence ids enter the sink in order
+     * and two emissions never race (which would fail with FAIL_NON_SERIALIZED)
+     */
+    public synchronized void publish(MovieInfoEvent.Type type, MovieInfo movieInfo) {
+        var event = new MovieInfoEvent(++sequence, type, movieInfo);
+        var emitResult = movieInfoSink.tryEmitNext(event);
+        if (emitResult.isFailure()) {
+            emissionCounter(emitResult).increment();
+            log.warn("Failed to publish MovieInfo event {} : {}", event.getSequence(), emitResult);
+        } else {
+            emitted.increment();
+        }
+    }
+
+    private Counter emissionCounter(Sinks.EmitResult emitResult) {
+        return Counter.builder("sink.emissions")
+                .tag("sink", "movieInfo")
+                .tag("result", emitResult.name())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param since last sequence the subscriber has seen, null replays the whole (bounded) buffer
+     */
+    public Flux<MovieInfoEvent> events(Long since) {
+        var events = movieInfoSink.asFlux();
+        if (since == null) {
+            return events;
+        }
+        // a late joiner only gets what it missed
+        return events.filter(event -> event.getSequence() > since);
+    }
+}
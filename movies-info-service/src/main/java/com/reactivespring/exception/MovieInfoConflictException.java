@@ -0,0 +1,11 @@
+package com.reactivespring.exception;
+
+/**
+ * The movie info was changed by someone else since the version the client has read
+ */
+public class MovieInfoConflictException extends RuntimeException {
+
+    public MovieInfoConflictException(String message) {
+        super(message);
+    }
+}
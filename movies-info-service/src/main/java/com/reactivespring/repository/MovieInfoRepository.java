@@ -3,9 +3,12 @@ package com.reactivespring.repository;
 import com.reactivespring.domain.MovieInfo;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 // ReactiveMongoRepository - this will enable the reactive nature of mongo db
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoRepositoryCustom {
     Flux<MovieInfo> findByYear(Integer year);
     Flux<MovieInfo> findByName(String year);
+    // number of documents removed, 0 when there was none with this id
+    Mono<Long> deleteByMovieInfoId(String movieInfoId);
 }
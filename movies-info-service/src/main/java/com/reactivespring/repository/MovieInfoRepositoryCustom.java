@@ -0,0 +1,32 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.BulkItemResult;
+import com.reactivespring.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Queries that can not be derived from the method name, implemented in MovieInfoRepositoryCustomImpl
+ */
+public interface MovieInfoRepositoryCustom {
+
+    /**
+     * Up to limit movie infos in _id order, starting right after afterId (null for the first page)
+     */
+    Flux<MovieInfo> findPage(String afterId, int limit);
+
+    /**
+     * Sets the non null fields of changes on the stored movie info in one findAndModify and returns the updated document.
+     * When changes carries a version, only that version is updated.
+     * Empty when there is no such movie info, or when the version does not match.
+     */
+    Mono<MovieInfo> update(String id, MovieInfo changes);
+
+    /**
+     * One unordered insertMany for the whole batch, a failing element does not stop the others.
+     * Result indexes are positions in movieInfos, inserted elements get their generated id like with save.
+     */
+    Flux<BulkItemResult<MovieInfo>> insertUnordered(List<MovieInfo> movieInfos);
+}
@@ -0,0 +1,117 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.domain.BulkItemResult;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.util.PageCursor;
+import com.reactivespring.util.ReactiveTimer;
+import com.reactivespring.util.VersionCriteria;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// picked up by Spring Data through the "Impl" suffix and merged into MovieInfoRepository
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    // what movieInfoId is stored as, for the page cursors
+    private final Class<?> idFieldType;
+    // repository.operations, from the subscription to the last document
+    private final ReactiveTimer timer;
+
+    public MovieInfoRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate, MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.idFieldType = reactiveMongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(MovieInfo.class)
+                .getRequiredIdProperty()
+                .getFieldType();
+        this.timer = new ReactiveTimer(meterRegistry, "repository.operations", "repository", "MovieInfoRepository");
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(String afterId, int limit) {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "movieInfoId"))
+                .limit(limit);
+        if (afterId != null) {
+            query.addCriteria(PageCursor.after("movieInfoId", idFieldType, afterId));
+        }
+        return timer.time("findPage", reactiveMongoTemplate.find(query, MovieInfo.class));
+    }
+
+    @Override
+    public Mono<MovieInfo> update(String id, MovieInfo changes) {
+        var query = Query.query(Criteria.where("movieInfoId").is(id));
+        if (changes.getVersion() != null) {
+            query.addCriteria(VersionCriteria.is("version", changes.getVersion()));
+        }
+        var update = new Update().inc("version", 1);
+        if (changes.getName() != null) {
+            update.set("name", changes.getName());
+        }
+        if (changes.getYear() != null) {
+            update.set("year", changes.getYear());
+        }
+        if (changes.getCast() != null) {
+            update.set("cast", changes.getCast());
+        }
+        if (changes.getRelease_date() != null) {
+            update.set("release_date", changes.getRelease_date());
+        }
+        return timer.time("update", reactiveMongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), MovieInfo.class));
+    }
+
+    @Override
+    public Flux<BulkItemResult<MovieInfo>> insertUnordered(List<MovieInfo> movieInfos) {
+        // same mapping as the template uses for save, _class included
+        var documents = movieInfos.stream()
+                .map(movieInfo -> {
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(movieInfo, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        var insertMany = reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))));
+        return timer.time("insertUnordered", insertMany)
+                .map(insertManyResult -> Map.<Integer, String>of())
+                // unordered: every element but the ones listed here made it in
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .flatMapIterable(writeErrors -> {
+                    var results = new ArrayList<BulkItemResult<MovieInfo>>(movieInfos.size());
+                    for (int i = 0; i < movieInfos.size(); i++) {
+                        var movieInfo = movieInfos.get(i);
+                        var error = writeErrors.get(i);
+                        if (error != null) {
+                            results.add(BulkItemResult.failed(i, movieInfo.getMovieInfoId(), error, movieInfo));
+                        } else {
+                            // the driver has put the generated _id on the document
+                            movieInfo.setMovieInfoId(id(documents.get(i).get("_id")));
+                            results.add(BulkItemResult.created(i, movieInfo.getMovieInfoId(), movieInfo));
+                        }
+                    }
+                    return results;
+                });
+    }
+
+    private String id(Object id) {
+        return id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id);
+    }
+}
@@ -1,49 +1,124 @@
 package com.reactivespring.service;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoConflictException;
 import com.reactivespring.repository.MovieInfoRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class MovieInfoService {
     private MovieInfoRepository movieInfoRepository;
 
-    public MovieInfoService(MovieInfoRepository movieInfoRepository) {
+    private Validator validator;
+
+    private int bulkBatchSize;
+
+    public MovieInfoService(MovieInfoRepository movieInfoRepository, Validator validator,
+                            @Value("${movieInfo.bulk.batchSize:500}") int bulkBatchSize) {
         this.movieInfoRepository = movieInfoRepository;
+        this.validator = validator;
+        this.bulkBatchSize = bulkBatchSize;
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
+        // every movie info starts at version 0, updates bump it
+        movieInfo.setVersion(0L);
         return movieInfoRepository.save(movieInfo);
     }
 
+    /**
+     * Validates every element, then inserts the valid ones in batches of bulkBatchSize with one unordered insertMany each.
+     * Batches run one after the other, so the request body is only read as fast as mongo takes it.
+     */
+    public Flux<BulkItemResult<MovieInfo>> addMovieInfos(Flux<MovieInfo> movieInfos) {
+        return movieInfos
+                .index()
+                .buffer(bulkBatchSize)
+                .concatMap(this::insertBatch);
+    }
+
+    private Flux<BulkItemResult<MovieInfo>> insertBatch(List<Tuple2<Long, MovieInfo>> batch) {
+        var invalid = new ArrayList<BulkItemResult<MovieInfo>>();
+        var valid = new ArrayList<MovieInfo>(batch.size());
+        var validIndexes = new ArrayList<Long>(batch.size());
+        for (var element : batch) {
+            var movieInfo = element.getT2();
+            var violations = validator.validate(movieInfo);
+            if (!violations.isEmpty()) {
+                var error = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(","));
+                invalid.add(BulkItemResult.failed(element.getT1(), movieInfo.getMovieInfoId(), error, movieInfo));
+            } else {
+                movieInfo.setVersion(0L);
+                valid.add(movieInfo);
+                validIndexes.add(element.getT1());
+            }
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(invalid);
+        }
+        var inserted = movieInfoRepository.insertUnordered(valid)
+                // back from the position in the batch to the position in the request
+                .doOnNext(result -> result.setIndex(validIndexes.get((int) result.getIndex())));
+        return Flux.concat(Flux.fromIterable(invalid), inserted);
+    }
+
     public Flux<MovieInfo> getAllMovieInfos() {
         return movieInfoRepository.findAll();
     }
 
+    public Flux<MovieInfo> getMovieInfosPage(String afterId, int limit) {
+        return movieInfoRepository.findPage(afterId, limit);
+    }
+
     public Mono<MovieInfo> getMovieInfoById(String id) {
         return movieInfoRepository.findById(id);
     }
 
-    public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo -> {
-                    movieInfo.setCast(updateMovieInfo.getCast());
-                    movieInfo.setName(updateMovieInfo.getName());
-                    movieInfo.setRelease_date(updateMovieInfo.getRelease_date());
-                    movieInfo.setYear(updateMovieInfo.getYear());
-
-                    // reason why we use flat map is that, we ae doing this operation,
-                    // this operation will return a Mono which is a Reactive Type
-                    // if you want to have a returning value of reactive type, use "flatMap()" method
-                    return movieInfoRepository.save(movieInfo);
-                });
+    // one query for all the ids, instead of one findById per id
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        return movieInfoRepository.findAllById(ids);
+    }
 
+    /**
+     * One findAndModify, only the fields present in updateMovieInfo are changed.
+     * Empty when there is no movie info for the id,
+     * MovieInfoConflictException when updateMovieInfo carries a version that is not the stored one anymore.
+     */
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id) {
+        return movieInfoRepository.update(id, updateMovieInfo)
+                .switchIfEmpty(Mono.defer(() -> {
+                    if (updateMovieInfo.getVersion() == null) {
+                        return Mono.empty();
+                    }
+                    // only on the failure path, tells a stale version apart from an unknown id
+                    return movieInfoRepository.existsById(id)
+                            .flatMap(exists -> exists
+                                    ? Mono.error(new MovieInfoConflictException("MovieInfo " + id
+                                            + " was modified, version " + updateMovieInfo.getVersion() + " is stale"))
+                                    : Mono.empty());
+                }));
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return movieInfoRepository.deleteById(id);
+    /**
+     * @return true when there was a MovieInfo with this id
+     */
+    public Mono<Boolean> deleteMovieInfo(String id) {
+        return movieInfoRepository.deleteByMovieInfoId(id)
+                .map(deleted -> deleted > 0);
     }
 
     public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
@@ -1,5 +1,6 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieInfoRepository;
 import org.junit.jupiter.api.AfterEach;
@@ -8,13 +9,27 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.test.StepVerifier;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -70,6 +85,42 @@ class MoviesInfoControllerTest {
 
     }
 
+    @Test
+    void addMovieInfos_bulk() {
+        var body = "{\"name\":\"Inception\",\"year\":2010,\"cast\":[\"Leonardo DiCaprio\"],\"release_date\":\"2010-07-16\"}\n"
+                // invalid, negative year
+                + "{\"name\":\"Memento\",\"year\":-1,\"cast\":[\"Guy Pearce\"],\"release_date\":\"2000-10-11\"}\n"
+                // duplicate key, "abc" is already there
+                + "{\"movieInfoId\":\"abc\",\"name\":\"Duplicate\",\"year\":2012,\"cast\":[\"Christian Bale\"],\"release_date\":\"2012-07-20\"}\n"
+                + "{\"name\":\"Interstellar\",\"year\":2014,\"cast\":[\"Matthew McConaughey\"],\"release_date\":\"2014-11-07\"}\n";
+
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkItemResult.class)
+                .hasSize(4)
+                .consumeWith(listEntityExchangeResult -> {
+                    var results = new HashMap<Long, BulkItemResult>();
+                    listEntityExchangeResult.getResponseBody().forEach(result -> results.put(result.getIndex(), result));
+                    assertEquals(BulkItemResult.Status.CREATED, results.get(0L).getStatus());
+                    assertNotNull(results.get(0L).getId());
+                    assertEquals(BulkItemResult.Status.FAILED, results.get(1L).getStatus());
+                    assertEquals("movieInfo.year must be a positive value", results.get(1L).getError());
+                    assertEquals(BulkItemResult.Status.FAILED, results.get(2L).getStatus());
+                    assertTrue(results.get(2L).getError().contains("duplicate key"));
+                    assertEquals(BulkItemResult.Status.CREATED, results.get(3L).getStatus());
+                });
+
+        StepVerifier.create(movieInfoRepository.findAll())
+                .expectNextCount(5)
+                .verifyComplete();
+    }
+
     @Test
     void getAllMovieInfos() {
         webTestClient
@@ -83,6 +134,45 @@ class MoviesInfoControllerTest {
 
     }
 
+    @Test
+    void getMovieInfosPage() {
+        // "abc" is a String id, the other two are generated ObjectIds, a page size of 1 walks across both kinds
+        var seenIds = new ArrayList<String>();
+        String cursor = null;
+        for (int page = 0; page < 3; page++) {
+            var uri = UriComponentsBuilder.fromUriString(MOVIES_INFO_URL)
+                    .queryParam("limit", 1)
+                    .queryParamIfPresent("after", Optional.ofNullable(cursor))
+                    .buildAndExpand()
+                    .toUri();
+            var result = webTestClient
+                    .get()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .hasSize(1)
+                    .returnResult();
+            seenIds.add(result.getResponseBody().get(0).getMovieInfoId());
+            cursor = result.getResponseHeaders().getFirst("X-Next-Cursor");
+        }
+
+        // every movie info exactly once, and no cursor after the last page
+        assertEquals(3, new HashSet<>(seenIds).size());
+        assertNull(cursor);
+    }
+
+    @Test
+    void getMovieInfosPage_invalidLimit() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=0")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getAllMovieInfos_stream() {
         var movieInfo = new MovieInfo(null, "Batman Begins 1",
@@ -119,6 +209,64 @@ class MoviesInfoControllerTest {
                 .verify();
     }
 
+    @Test
+    void getAllMovieInfos_events_resume() {
+        var movieInfo = new MovieInfo(null, "Batman Begins 1",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var savedMovieInfo = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .blockFirst();
+        assertNotNull(savedMovieInfo);
+
+        // Server-Sent Events carry the sequence of every event as its id
+        // the buffer is shared with the other tests, so look for the event of the movie info we just saved
+        var savedEvent = webTestClient
+                .get()
+                .uri("/v1/movieinfos/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {})
+                .getResponseBody()
+                .filter(event -> savedMovieInfo.getMovieInfoId().equals(Objects.requireNonNull(event.data()).getMovieInfoId()))
+                .blockFirst(Duration.ofSeconds(5));
+        assertNotNull(savedEvent);
+        assertNotNull(savedEvent.id());
+
+        movieInfo.setName("Batman Begins 2");
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        // resuming from the event we already have only returns the missed one
+        var movieStreamFlux = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .header("Last-Event-ID", savedEvent.id())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(movieStreamFlux)
+                .assertNext(movieInfo1 -> assertEquals("Batman Begins 2", movieInfo1.getName()))
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void getAllMovieInfosByYear() {
         var uri = UriComponentsBuilder.fromUriString(MOVIES_INFO_URL)
@@ -153,6 +301,24 @@ class MoviesInfoControllerTest {
 
     }
 
+    @Test
+    void getAllMovieInfosByIds() {
+        var uri = UriComponentsBuilder.fromUriString(MOVIES_INFO_URL)
+                .queryParam("ids", "abc,def")
+                .buildAndExpand()
+                .toUri();
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange() // make the call to the endpoint
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                // "def" does not exist
+                .hasSize(1);
+
+    }
+
     @Test
     void findMovieInfoById_approach_1() {
         var movieInfoId = "abc";
@@ -235,6 +401,39 @@ class MoviesInfoControllerTest {
 
     }
 
+    @Test
+    void updateMovieInfo_partialAndVersioned() {
+        var movieInfoId = "abc";
+        // only the name is sent, the other fields are left as they are
+        var changes = new MovieInfo();
+        changes.setName("Dark Knight Rises (Updated)");
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult -> {
+                    var updateMovieInfo = movieInfoEntityExchangeResult.getResponseBody();
+                    assert updateMovieInfo != null;
+                    assertEquals("Dark Knight Rises (Updated)", updateMovieInfo.getName());
+                    assertEquals(2012, updateMovieInfo.getYear().intValue());
+                    assertEquals(1L, updateMovieInfo.getVersion().longValue());
+                });
+
+        // the update above moved it to version 1, version 0 is stale
+        changes.setVersion(0L);
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void deleteMovieInfo() {
         var movieInfoId = "abc";
@@ -245,4 +444,93 @@ class MoviesInfoControllerTest {
                 .expectStatus()
                 .isNoContent();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findMovieInfoById_recreatedIsModified() {
+        var movieInfoId = "abc";
+        var eTag = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+        // back at version 0, under the same id
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(new MovieInfo(movieInfoId, "Dark Knight Rises (Remastered)",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        // the old ETag does not match anymore, the new movie info is sent
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().value(HttpHeaders.ETAG, newETag -> assertNotEquals(eTag, newETag))
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult -> {
+                    var movieInfo = movieInfoEntityExchangeResult.getResponseBody();
+                    assert movieInfo != null;
+                    assertEquals("Dark Knight Rises (Remastered)", movieInfo.getName());
+                    assertEquals(0L, movieInfo.getVersion().longValue());
+                });
+    }
+
+    @Test
+    void getAllMovieInfosByYear_compressed() throws Exception {
+        // well over the 1KB of server.compression.min-response-size
+        var movieInfos = new ArrayList<MovieInfo>();
+        for (int i = 0; i < 30; i++) {
+            movieInfos.add(new MovieInfo(null, "Batman Begins " + i,
+                    2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+        }
+        movieInfoRepository.saveAll(movieInfos).blockLast();
+
+        var body = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?year=2005")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        // the test client does not decompress on its own
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(Objects.requireNonNull(body)))) {
+            var json = new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(json.contains("Batman Begins 29"), json);
+        }
+    }
+
+    @Test
+    void findMovieInfoById_tooSmallToCompress() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", "abc")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(MovieInfo.class);
+    }
+}
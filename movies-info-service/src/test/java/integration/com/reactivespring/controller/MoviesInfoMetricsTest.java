@@ -0,0 +1,104 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The meters of the service, as Prometheus scrapes them from /actuator/prometheus.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureMetrics // the Prometheus registry is left out of the tests otherwise
+class MoviesInfoMetricsTest {
+
+    static String MOVIES_INFO_URL = "/v1/movieinfos";
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @BeforeEach
+    void setup() {
+        movieInfoRepository.save(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")))
+                .block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void prometheus() {
+        webTestClient.post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(new MovieInfo(null, "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")))
+                .exchange()
+                .expectStatus().isCreated();
+        webTestClient.post()
+                .uri(MOVIES_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"name\":\"Inception\",\"year\":2010,\"cast\":[\"Leonardo DiCaprio\"],\"release_date\":\"2010-07-16\"}\n")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri(MOVIES_INFO_URL + "?limit=1")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.put()
+                .uri(MOVIES_INFO_URL + "/{id}", "abc")
+                .bodyValue(new MovieInfo(null, "Dark Knight Rises 1", null, null, null))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .consumeWith(stringEntityExchangeResult -> {
+                    var body = Objects.requireNonNull(stringEntityExchangeResult.getResponseBody());
+                    assertMeter(body, "http_server_requests_seconds_bucket", "application=\"movies-info-service\"",
+                            "uri=\"/v1/movieinfos/{id}\"");
+                    // the custom operations, timed up to their last document
+                    assertMeter(body, "repository_operations_seconds_count", "repository=\"MovieInfoRepository\"",
+                            "operation=\"findPage\"", "outcome=\"success\"");
+                    assertMeter(body, "repository_operations_seconds_count", "operation=\"update\"");
+                    assertMeter(body, "repository_operations_seconds_count", "operation=\"insertUnordered\"");
+                    assertMeter(body, "repository_operations_seconds_bucket", "operation=\"findPage\"");
+                    assertMeter(body, "spring_data_repository_invocations_seconds_count", "repository=\"MovieInfoRepository\"");
+                    assertMeter(body, "mongodb_driver_commands_seconds_count", "command=\"insert\"");
+                    // the POST and the bulk insert
+                    assertMeter(body, "sink_emissions_total", "sink=\"movieInfo\"", "result=\"OK\"");
+                });
+    }
+
+    private static void assertMeter(String body, String name, String... labels) {
+        assertTrue(Arrays.stream(body.split("\n"))
+                        .anyMatch(line -> line.startsWith(name + "{")
+                                && Arrays.stream(labels).allMatch(line::contains)),
+                name + " " + Arrays.toString(labels));
+    }
+}
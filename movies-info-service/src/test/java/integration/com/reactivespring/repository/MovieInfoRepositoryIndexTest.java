@@ -0,0 +1,78 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.config.MongoIndexInitializer;
+import com.reactivespring.domain.MovieInfo;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Runs every MovieInfoRepository finder and asks mongo for the winning plan of the query it sent,
+ * fails as soon as one of them would fall back to a collection scan.
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({MongoIndexInitializer.class, QueryPlanRecorder.class})
+class MovieInfoRepositoryIndexTest {
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    QueryPlanRecorder queryPlanRecorder;
+
+    @BeforeEach
+    void setup() {
+        mongoIndexInitializer.ensureIndexes().block();
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo(null, "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        movieInfoRepository.saveAll(movieinfos).blockLast();
+    }
+
+    @AfterEach
+    void cleanup() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void findByYear() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate, movieInfoRepository.findByYear(2005));
+    }
+
+    @Test
+    void findByName() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate, movieInfoRepository.findByName("Batman Begins"));
+    }
+
+    @Test
+    void findAllById() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate, movieInfoRepository.findAllById(List.of("abc", "def")));
+    }
+
+    @Test
+    void findPage() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate,
+                movieInfoRepository.findPage(new ObjectId().toHexString(), 10));
+        // a client given String id, the next page is "the bigger Strings, then all the ObjectIds"
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate, movieInfoRepository.findPage("abc", 10));
+    }
+}
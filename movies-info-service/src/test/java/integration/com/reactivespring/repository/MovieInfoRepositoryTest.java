@@ -1,11 +1,13 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.MovieInfo;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import reactor.test.StepVerifier;
 
@@ -43,6 +45,9 @@ class MovieInfoRepositoryTest {
     @Autowired
     MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
     @Test
     void findAll() {
         var moviesInfoFlux = movieInfoRepository.findAll().log();
@@ -91,6 +96,38 @@ class MovieInfoRepositoryTest {
                 })
                 .verifyComplete();
     }
+    @Test
+    void update_storedWithoutVersion() {
+        // written before MovieInfo had a version
+        reactiveMongoTemplate.insert(new Document("_id", "legacy")
+                        .append("name", "Legacy Movie")
+                        .append("year", 1999),
+                reactiveMongoTemplate.getCollectionName(MovieInfo.class)).block();
+
+        // version 1 was never stored
+        var stale = new MovieInfo();
+        stale.setName("Legacy Movie (Updated)");
+        stale.setVersion(1L);
+        StepVerifier.create(movieInfoRepository.update("legacy", stale))
+                .verifyComplete();
+
+        // the missing field counts as version 0
+        var changes = new MovieInfo();
+        changes.setName("Legacy Movie (Updated)");
+        changes.setVersion(0L);
+        StepVerifier.create(movieInfoRepository.update("legacy", changes))
+                .assertNext(movieInfo -> {
+                    assertEquals("Legacy Movie (Updated)", movieInfo.getName());
+                    assertEquals(1999, movieInfo.getYear());
+                    assertEquals(1L, movieInfo.getVersion());
+                })
+                .verifyComplete();
+
+        // now on version 1, version 0 is stale
+        StepVerifier.create(movieInfoRepository.update("legacy", changes))
+                .verifyComplete();
+    }
+
     @Test
     void deleteMovieInfo() {
         // add block, delete id will return immediately before findALl is excuted. Block will prevent that
@@ -101,6 +138,17 @@ class MovieInfoRepositoryTest {
                 .verifyComplete();
     }
 
+    @Test
+    void deleteByMovieInfoId() {
+        StepVerifier.create(movieInfoRepository.deleteByMovieInfoId("abc"))
+                .expectNext(1L)
+                .verifyComplete();
+        // already gone, the controller does not publish a DELETE event for it
+        StepVerifier.create(movieInfoRepository.deleteByMovieInfoId("abc"))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
     @Test
     void findByYear() {
         var moviesInfoFlux = movieInfoRepository.findByYear(2005).log();
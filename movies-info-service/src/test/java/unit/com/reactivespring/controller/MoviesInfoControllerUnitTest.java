@@ -1,25 +1,38 @@
 package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.event.MovieInfoEventPublisher;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.util.ReactiveTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
 @AutoConfigureWebTestClient
+// @WebFluxTest only picks up the controller, these are plain @Components, the publisher counts its emissions in the registry
+@Import({MovieInfoEventPublisher.class, ReactiveTracing.class, SimpleMeterRegistry.class})
 public class MoviesInfoControllerUnitTest {
     @Autowired
     private WebTestClient webTestClient;
@@ -27,6 +40,9 @@ public class MoviesInfoControllerUnitTest {
     @MockBean
     private MovieInfoService movieInfoServiceMock;
 
+    @Autowired
+    private MovieInfoEventPublisher movieInfoEventPublisher;
+
     static String MOVIES_INFO_URL = "/v1/movieinfos";
 
     @Test
@@ -49,6 +65,50 @@ public class MoviesInfoControllerUnitTest {
 
     }
 
+    @Test
+    void getAllMoviesInfo_smile() {
+        var movieinfos = List.of(new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+        when(movieInfoServiceMock.getAllMovieInfos()).thenReturn(Flux.fromIterable(movieinfos));
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL)
+                // what movies-service asks for
+                .header(HttpHeaders.ACCEPT, "application/x-jackson-smile, application/json;q=0.9")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().contentType("application/x-jackson-smile")
+                .expectBodyList(MovieInfo.class)
+                .contains(movieinfos.get(0));
+    }
+
+    @Test
+    void getAllMoviesInfo_deadlineExceeded() {
+        // the query never answers, the caller only gives it 100ms
+        when(movieInfoServiceMock.getAllMovieInfos()).thenReturn(Flux.never());
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL)
+                .header("X-Request-Timeout", "100")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void getAllMoviesInfo_deadlineAlreadyPassed() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL)
+                .header("X-Request-Timeout", "0")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        verifyNoInteractions(movieInfoServiceMock);
+    }
+
     @Test
     void getMovieInfoById() {
         var movieInfoId = "abc";
@@ -65,6 +125,96 @@ public class MoviesInfoControllerUnitTest {
 
     }
 
+    @Test
+    void getMovieInfoById_notModified() {
+        var movieInfoId = "abc";
+        var movieInfo = new MovieInfo(movieInfoId, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"), 0L);
+        when(movieInfoServiceMock.getMovieInfoById(movieInfoId)).thenReturn(Mono.just(movieInfo));
+        var etag = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // same document, same ETag: no body
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+
+        // the document was updated, the full body with a new ETag
+        movieInfo.setName("Batman Begins Again");
+        movieInfo.setVersion(1L);
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().value(HttpHeaders.ETAG, newEtag -> assertNotEquals(etag, newEtag));
+    }
+
+    @Test
+    void getMovieInfoByYear_notModified() {
+        var movieInfo = new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"), 0L);
+        when(movieInfoServiceMock.getMovieInfoByYear(2005)).thenAnswer(invocation -> Flux.just(movieInfo));
+        var etag = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?year=2005")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?year=2005")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        movieInfo.setVersion(1L);
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?year=2005")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().value(HttpHeaders.ETAG, newEtag -> assertNotEquals(etag, newEtag));
+    }
+
+    @Test
+    void getAllMoviesInfo_streamedWithoutETag() {
+        when(movieInfoServiceMock.getAllMovieInfos()).thenReturn(Flux.just(new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"), 0L)));
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().doesNotExist(HttpHeaders.ETAG)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void addMovieInfo() {
         var movieInfo = new MovieInfo("mockId", "Batman Begins",
@@ -139,13 +289,41 @@ public class MoviesInfoControllerUnitTest {
     @Test
     void deleteMovieInfo() {
         var movieInfoId = "abc";
-        when(movieInfoServiceMock.deleteMovieInfo(movieInfoId)).thenReturn(Mono.empty());
+        when(movieInfoServiceMock.deleteMovieInfo(movieInfoId)).thenReturn(Mono.just(true));
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        StepVerifier.create(deleteEvents(movieInfoId))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteMovieInfo_notFound() {
+        var movieInfoId = "missing";
+        when(movieInfoServiceMock.deleteMovieInfo(movieInfoId)).thenReturn(Mono.just(false));
         webTestClient
                 .delete()
                 .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
                 .exchange()
                 .expectStatus()
                 .isNoContent();
+
+        // nothing was deleted, no event for the subscribers
+        StepVerifier.create(deleteEvents(movieInfoId))
+                .verifyComplete();
+    }
+
+    // the DELETE events already in the replay buffer, the sink itself never completes
+    private Flux<MovieInfoEvent> deleteEvents(String movieInfoId) {
+        return movieInfoEventPublisher.events(null)
+                .take(Duration.ofMillis(200))
+                .filter(event -> event.getType() == MovieInfoEvent.Type.DELETE)
+                .filter(event -> movieInfoId.equals(event.getMovieInfo().getMovieInfoId()));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.reactivespring.event;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoEventPublisherTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MovieInfoEventPublisher movieInfoEventPublisher = new MovieInfoEventPublisher(2, Duration.ofMinutes(10), "sink", meterRegistry);
+
+    private MovieInfo movieInfo(String id) {
+        return new MovieInfo(id, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+    }
+
+    @Test
+    void events_replayIsBounded() {
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("3"));
+
+        // historySize is 2, the oldest event is gone
+        StepVerifier.create(movieInfoEventPublisher.events(null).map(event -> event.getMovieInfo().getMovieInfoId()))
+                .expectNext("2", "3")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void events_sequenceIncreases() {
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+
+        var events = movieInfoEventPublisher.events(null).take(2).collectList().block();
+
+        assert events != null;
+        assertTrue(events.get(0).getSequence() < events.get(1).getSequence());
+    }
+
+    @Test
+    void events_since() {
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        var first = movieInfoEventPublisher.events(null).blockFirst();
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+
+        assert first != null;
+        // resuming after the first event only gives back what was missed
+        StepVerifier.create(movieInfoEventPublisher.events(first.getSequence()).map(MovieInfoEvent::getMovieInfo))
+                .assertNext(movieInfo -> assertEquals("2", movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publishLocal_ignoredInChangeStreamMode() {
+        var changeStreamPublisher = new MovieInfoEventPublisher(2, Duration.ofMinutes(10), "change-stream", meterRegistry);
+        changeStreamPublisher.publishLocal(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        changeStreamPublisher.publish(MovieInfoEvent.Type.DELETE, movieInfo("2"));
+
+        StepVerifier.create(changeStreamPublisher.events(null))
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEvent.Type.DELETE, event.getType());
+                    assertEquals("2", event.getMovieInfo().getMovieInfoId());
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publish_countsEmissions() {
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        movieInfoEventPublisher.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+
+        var emitted = meterRegistry.get("sink.emissions")
+                .tag("sink", "movieInfo")
+                .tag("result", Sinks.EmitResult.OK.name())
+                .counter();
+        assertEquals(2.0, emitted.count());
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.Review;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the indexes the ReviewReactiveRepository finders rely on, without them every finder is a collection scan.
+ * ensureIndex is a no-op when the index already exists, so this is safe to run on every startup.
+ */
+@Component
+@Slf4j
+public class MongoIndexInitializer {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensureIndexes()
+                .subscribe(unused -> { }, ex -> log.error("Failed to create the Review indexes : {}", ex.getMessage(), ex));
+    }
+
+    public Mono<Void> ensureIndexes() {
+        return reactiveMongoTemplate.indexOps(Review.class)
+                // movieInfoId for findReviewByMovieInfoId(In), _id second for the keyset pages of one movie
+                .ensureIndex(new Index()
+                        .on("movieInfoId", Sort.Direction.ASC)
+                        .on("_id", Sort.Direction.ASC)
+                        .named("movieInfoId_id"))
+                .doOnNext(indexName -> log.info("Index ensured : {}", indexName))
+                .then();
+    }
+}
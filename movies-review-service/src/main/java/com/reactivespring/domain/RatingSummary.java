@@ -0,0 +1,26 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Rating aggregates of one movie.
+ * histogram counts the ratings per whole point, e.g. 8 -> number of ratings from 8.0 up to 8.9
+ * mean, min and max are null when the movie has no rating yet.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double mean;
+    private Double min;
+    private Double max;
+    private Map<Integer, Long> histogram;
+}
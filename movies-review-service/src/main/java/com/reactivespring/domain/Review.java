@@ -21,4 +21,13 @@ public class Review {
     private String comment;
     @Min(value = 0L, message = "rating.negative : please pass a non-negative value")
     private Double rating;
+    /**
+     * Bumped on every update. Send it back on a PUT to only update the version you have read,
+     * leave it out to update whatever is stored.
+     */
+    private Long version;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this(reviewId, movieInfoId, comment, rating, null);
+    }
 }
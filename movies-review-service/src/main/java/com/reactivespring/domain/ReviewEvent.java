@@ -0,0 +1,21 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Review published to the stream subscribers. For a DELETE only the reviewId of the Review is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewEvent {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private Type type;
+    private Review review;
+}
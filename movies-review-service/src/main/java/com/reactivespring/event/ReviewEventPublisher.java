@@ -0,0 +1,68 @@
+package com.reactivespring.event;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Holds the Review events for the stream endpoints.
+ *
+ * reviews.stream.source decides where the events come from
+ * - sink (default): the writes done by this instance, see publishLocal
+ * - change-stream: the MongoDB change stream, see ReviewChangeStreamListener. Every replica sees every write.
+ *
+ * Every emission is counted in sink.emissions, tagged with its EmitResult.
+ */
+@Component
+@Slf4j
+public class ReviewEventPublisher {
+
+    private final Sinks.Many<ReviewEvent> reviewSink = Sinks.many().replay().latest();
+    private final boolean localEvents;
+    private final MeterRegistry meterRegistry;
+    private final Counter emitted;
+
+    public ReviewEventPublisher(@Value("${reviews.stream.source:sink}") String source, MeterRegistry meterRegistry) {
+        this.localEvents = !"change-stream".equals(source);
+        this.meterRegistry = meterRegistry;
+        this.emitted = emissionCounter(Sinks.EmitResult.OK);
+    }
+
+    /**
+     * Called by the handler after its own writes.
+     * Ignored in change-stream mode, the change stream already delivers them (and the ones of the other replicas).
+     */
+    public void publishLocal(ReviewEvent.Type type, Review review) {
+        if (localEvents) {
+            publish(type, review);
+        }
+    }
+
+    // synchronized, two emissions racing on the sink would fail with FAIL_NON_SERIALIZED
+    public synchronized void publish(ReviewEvent.Type type, Review review) {
+        var emitResult = reviewSink.tryEmitNext(new ReviewEvent(type, review));
+        if (emitResult.isFailure()) {
+            emissionCounter(emitResult).increment();
+            log.warn("Failed to publish Review event for {} : {}", review.getReviewId(), emitResult);
+        } else {
+            emitted.increment();
+        }
+    }
+
+    public Flux<ReviewEvent> events() {
+        return reviewSink.asFlux();
+    }
+
+    private Counter emissionCounter(Sinks.EmitResult emitResult) {
+        return Counter.builder("sink.emissions")
+                .tag("sink", "reviews")
+                .tag("result", emitResult.name())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.reactivespring.exception;
+
+/**
+ * The review was changed by someone else since the version the client has read
+ */
+public class ReviewConflictException extends RuntimeException {
+
+    private String message;
+
+    public ReviewConflictException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
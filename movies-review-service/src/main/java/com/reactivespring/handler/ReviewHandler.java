@@ -1,22 +1,39 @@
 package com.reactivespring.handler;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.event.ReviewEventPublisher;
+import com.reactivespring.exception.ReviewConflictException;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.PageCursor;
+import com.reactivespring.util.ReactiveTracing;
+import com.reactivespring.util.RequestDeadline;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuple2;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,14 +43,27 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ReviewHandler {
 
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
     @Autowired
     private Validator validator;
     private ReviewReactiveRepository reviewReactiveRepository;
 
-    Sinks.Many<Review> reviewSink = Sinks.many().replay().latest();
+    private ReviewEventPublisher reviewEventPublisher;
+
+    private ReactiveTracing reactiveTracing;
+
+    @Value("${reviews.page.maxLimit:500}")
+    private int maxPageLimit;
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository) {
+    @Value("${reviews.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, ReviewEventPublisher reviewEventPublisher,
+                         ReactiveTracing reactiveTracing) {
         this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewEventPublisher = reviewEventPublisher;
+        this.reactiveTracing = reactiveTracing;
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
@@ -42,6 +72,8 @@ public class ReviewHandler {
                  * allows you to have access with Review class
                  */
                 .doOnNext(this::validate)
+                // every review starts at version 0, updates bump it
+                .doOnNext(review -> review.setVersion(0L))
                 /**
                  * We will perform save operation and return the value
                  * Everytime you're going to perform a reactive operation
@@ -53,7 +85,7 @@ public class ReviewHandler {
                  * Publish / emitting review
                  */
                 .doOnNext(review -> {
-                    reviewSink.tryEmitNext(review);
+                    reviewEventPublisher.publishLocal(ReviewEvent.Type.INSERT, review);
                 })
                 .flatMap(saveReview -> ServerResponse
                         .status(HttpStatus.CREATED)
@@ -61,64 +93,258 @@ public class ReviewHandler {
     }
 
     private void validate(Review review) {
+        var errorMessage = violations(review);
+        log.info("constraintViolations: {}", errorMessage);
+        if (errorMessage != null) {
+            throw new ReviewDataException(errorMessage);
+        }
+
+    }
+
+    /**
+     * The constraint violations of review as one message, null when it is valid
+     */
+    private String violations(Review review) {
         /**
          * Gives you set of constraints for review
          */
         var constraintValidations = validator.validate(review);
-        log.info("constraintViolations: {}", constraintValidations);
-        if (constraintValidations.size() > 0) {
-            var errorMessage = constraintValidations
-                    .stream()
-                    .map(ConstraintViolation::getMessage)
-                    .sorted()
-                    .collect(Collectors.joining(","));
-            throw new ReviewDataException(errorMessage);
+        if (constraintValidations.isEmpty()) {
+            return null;
         }
+        return constraintValidations
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Bulk insert, the body is a stream of reviews (NDJSON or a JSON array).
+     * Every element is validated, the valid ones are inserted in batches of bulkBatchSize with one unordered insertMany each.
+     * Answers with one BulkItemResult per element as the batches get written.
+     */
+    public Mono<ServerResponse> addReviews(ServerRequest request) {
+        var results = request.bodyToFlux(Review.class)
+                .index()
+                .buffer(bulkBatchSize)
+                // one batch at a time, the body is only read as fast as mongo takes it
+                .concatMap(this::insertBatch)
+                .doOnNext(result -> {
+                    if (result.getStatus() == BulkItemResult.Status.CREATED) {
+                        reviewEventPublisher.publishLocal(ReviewEvent.Type.INSERT, result.getItem());
+                    }
+                });
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, new ParameterizedTypeReference<BulkItemResult<Review>>() {});
+    }
 
+    private Flux<BulkItemResult<Review>> insertBatch(List<Tuple2<Long, Review>> batch) {
+        var invalid = new ArrayList<BulkItemResult<Review>>();
+        var valid = new ArrayList<Review>(batch.size());
+        var validIndexes = new ArrayList<Long>(batch.size());
+        for (var element : batch) {
+            var review = element.getT2();
+            var errorMessage = violations(review);
+            if (errorMessage != null) {
+                invalid.add(BulkItemResult.failed(element.getT1(), review.getReviewId(), errorMessage, review));
+            } else {
+                review.setVersion(0L);
+                valid.add(review);
+                validIndexes.add(element.getT1());
+            }
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(invalid);
+        }
+        var inserted = reviewReactiveRepository.insertUnordered(valid)
+                // back from the position in the batch to the position in the request
+                .doOnNext(result -> result.setIndex(validIndexes.get((int) result.getIndex())));
+        return Flux.concat(Flux.fromIterable(invalid), inserted);
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
-        var movieInfoId = request.queryParam("movieInfoId");
-        if (movieInfoId.isPresent()) {
-            var reviewFlux = reviewReactiveRepository.findReviewByMovieInfoId(Long.valueOf(movieInfoId.get()));
-            return buildOkResponseBody(reviewFlux);
+        /**
+         * Bulk lookup, accepts both ?movieInfoIds=1,2,3 and ?movieInfoIds=1&movieInfoIds=2
+         */
+        var movieInfoIds = request.queryParams().get("movieInfoIds");
+        if (movieInfoIds != null && !movieInfoIds.isEmpty()) {
+            Set<Long> ids;
+            try {
+                ids = movieInfoIds.stream()
+                        .flatMap(value -> Arrays.stream(value.split(",")))
+                        .map(String::trim)
+                        .filter(id -> !id.isEmpty())
+                        .map(Long::valueOf)
+                        .collect(Collectors.toSet());
+            } catch (NumberFormatException e) {
+                return Mono.error(new ReviewDataException("movieInfoIds must be numbers"));
+            }
+            return buildOkResponseBody(request, reviewReactiveRepository.findReviewByMovieInfoIdIn(ids));
+        }
+
+        Long movieInfoId = null;
+        var movieInfoIdParam = request.queryParam("movieInfoId");
+        if (movieInfoIdParam.isPresent()) {
+            try {
+                movieInfoId = Long.valueOf(movieInfoIdParam.get());
+            } catch (NumberFormatException e) {
+                return Mono.error(new ReviewDataException("movieInfoId must be a number"));
+            }
+        }
+        var limit = request.queryParam("limit");
+        if (limit.isPresent()) {
+            return getReviewsPage(request, movieInfoId, request.queryParam("after").orElse(null), limit.get());
+        }
+        if (movieInfoId != null) {
+            var reviewFlux = reviewReactiveRepository.findReviewByMovieInfoId(movieInfoId);
+            return buildOkResponseBody(request, reviewFlux);
         }
 
         var reviewsFlux = reviewReactiveRepository.findAll();
-        // other way in sending body response
-        return buildOkResponseBody(reviewsFlux);
+        // the whole collection is streamed as it is read, without an ETag
+        return ok(request).body(reviewsFlux.transform(RequestDeadline::enforce), Review.class);
     }
 
-    private Mono<ServerResponse> buildOkResponseBody(Flux<Review> reviewFlux) {
-        return ServerResponse.ok().body(reviewFlux, Review.class);
+    /**
+     * Rating aggregates of one movie, e.g. /v1/reviews/summary?movieInfoId=1
+     * Computed by mongo, the reviews themselves are not sent over the wire.
+     */
+    public Mono<ServerResponse> getRatingSummary(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId");
+        if (movieInfoId.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoId must be present"));
+        }
+        Long id;
+        try {
+            id = Long.valueOf(movieInfoId.get());
+        } catch (NumberFormatException e) {
+            return Mono.error(new ReviewDataException("movieInfoId must be a number"));
+        }
+        return reviewReactiveRepository.ratingSummary(id)
+                .transform(RequestDeadline::enforce)
+                // no id nor version, tagged by the values it is made of
+                .flatMap(ratingSummary -> withETag(request, ratingSummary, ETags.ofValues(
+                        ratingSummary.getMovieInfoId(), ratingSummary.getCount(), ratingSummary.getSum(),
+                        ratingSummary.getMin(), ratingSummary.getMax(), new TreeMap<>(ratingSummary.getHistogram()))));
+    }
+
+    /**
+     * Keyset pagination, e.g. /v1/reviews?limit=50 then /v1/reviews?limit=50&after={X-Next-Cursor}
+     * The X-Next-Cursor header is left out on the last page.
+     */
+    private Mono<ServerResponse> getReviewsPage(ServerRequest request, Long movieInfoId, String after, String limitParam) {
+        int limit;
+        String afterId;
+        try {
+            limit = Integer.parseInt(limitParam);
+            afterId = PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ReviewDataException("Invalid page request : " + e.getMessage()));
+        }
+        if (limit < 1) {
+            return Mono.error(new ReviewDataException("limit must be a positive value"));
+        }
+        var pageSize = Math.min(limit, maxPageLimit);
+        // one extra element tells us if there is a next page
+        return reviewReactiveRepository.findPage(movieInfoId, afterId, pageSize + 1)
+                .transform(RequestDeadline::enforce)
+                .collectList()
+                .flatMap(reviews -> {
+                    if (reviews.size() <= pageSize) {
+                        return ok(request).bodyValue(reviews);
+                    }
+                    List<Review> page = new ArrayList<>(reviews.subList(0, pageSize));
+                    return ok(request)
+                            .header(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(page.get(pageSize - 1).getReviewId()))
+                            .bodyValue(page);
+                });
+    }
+
+    /**
+     * The query is cancelled once the caller's deadline is reached, see RequestDeadlineFilter
+     * The reviews of one or a few movies are collected for their ETag, computed from the reviews they hold.
+     */
+    private Mono<ServerResponse> buildOkResponseBody(ServerRequest request, Flux<Review> reviewFlux) {
+        return reviewFlux.transform(RequestDeadline::enforce)
+                .collectList()
+                .flatMap(reviews -> withETag(request, reviews, ETags.of(reviews, ReviewHandler::eTagValues)));
     }
 
+    /**
+     * What the ETag of a review is computed from: the version alone starts over at 0 when it is posted again
+     * under the same id, or deleted and created again
+     */
+    private static List<?> eTagValues(Review review) {
+        return Arrays.asList(review.getReviewId(), review.getVersion(), review.getMovieInfoId(),
+                review.getComment(), review.getRating());
+    }
+
+    /**
+     * An If-None-Match that still matches gets a 304 without a body.
+     * The same ETag is sent for the JSON, Smile and compressed forms, hence the Vary header.
+     */
+    private Mono<ServerResponse> withETag(ServerRequest request, Object body, String eTag) {
+        return ok(request)
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .bodyValue(body);
+    }
+
+    /**
+     * 200 in JSON, or in Smile when the caller prefers it (movies-service does, see its WebClientConfig).
+     * Unlike an annotated controller, a handler function does not pick the format from the Accept header on its own.
+     */
+    private ServerResponse.BodyBuilder ok(ServerRequest request) {
+        var accepted = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (var mediaType : accepted) {
+            // */* and application/* get JSON
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+            }
+            if (mediaType.isCompatibleWith(APPLICATION_SMILE)) {
+                return ServerResponse.ok().contentType(APPLICATION_SMILE);
+            }
+        }
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * One findAndModify, only the comment and rating present in the request are changed.
+     * A version in the request makes it conditional, 409 when the stored review has moved on.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest serverRequest) {
         var reviewId = serverRequest.pathVariable("id");
-        var reviewFromDb = reviewReactiveRepository.findById(reviewId);
-//                .switchIfEmpty(Mono.error((new ReviewNotFoundException("Review not found for the given Review id" + reviewId))));
-        return reviewFromDb
-                .flatMap(existingReview ->
-                        // accessing the request body
-                        serverRequest.bodyToMono(Review.class)
-                                .map(requestReview -> {
-                                    existingReview.setComment(requestReview.getComment());
-                                    existingReview.setRating(requestReview.getRating());
-                                    return requestReview;
-                                })
-                                .flatMap(reviewReactiveRepository::save)
-                                .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
-                )
+        return serverRequest.bodyToMono(Review.class)
+                .flatMap(requestReview -> reviewReactiveRepository.update(reviewId, requestReview)
+                        .switchIfEmpty(Mono.defer(() -> staleVersionOrEmpty(reviewId, requestReview))))
+                .doOnNext(savedReview -> reviewEventPublisher.publishLocal(ReviewEvent.Type.UPDATE, savedReview))
+                .flatMap(savedReview -> ok(serverRequest).bodyValue(savedReview))
                 /** ANother 404 not found approach */
                 .switchIfEmpty(ServerResponse.notFound().build());
+    }
 
+    // only on the failure path, tells a stale version apart from an unknown id
+    private Mono<Review> staleVersionOrEmpty(String reviewId, Review requestReview) {
+        if (requestReview.getVersion() == null) {
+            return Mono.empty();
+        }
+        return reviewReactiveRepository.existsById(reviewId)
+                .flatMap(exists -> exists
+                        ? Mono.error(new ReviewConflictException("Review " + reviewId
+                                + " was modified, version " + requestReview.getVersion() + " is stale"))
+                        : Mono.empty());
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest serverRequest) {
         var reviewId = serverRequest.pathVariable("id");
         var reviewFromDb = reviewReactiveRepository.findById(reviewId);
         return reviewFromDb
-                .flatMap(existingReview -> reviewReactiveRepository.deleteById(reviewId))
+                .flatMap(existingReview -> reviewReactiveRepository.deleteById(reviewId)
+                        .then(Mono.fromRunnable(() -> reviewEventPublisher.publishLocal(
+                                ReviewEvent.Type.DELETE, Review.builder().reviewId(reviewId).build()))))
                 // Delete wont have any value
                 .then(ServerResponse.noContent().build());
     }
@@ -129,7 +355,24 @@ public class ReviewHandler {
                  * Need to specify the content type to return
                  */
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewSink.asFlux(), Review.class)
-                .log();
+                // deletes only carry the id, they are left out here and available on /v1/reviews/events
+                .body(reviewEventPublisher.events()
+                        .filter(event -> event.getType() != ReviewEvent.Type.DELETE)
+                        .map(ReviewEvent::getReview)
+                        // off unless switched on, see ReactiveTracing
+                        .transform(reactiveTracing.flux("reviews.stream")), Review.class);
+    }
+
+    /**
+     * Every insert, update and delete as Server-Sent Events, the event name is the operation
+     */
+    public Mono<ServerResponse> getReviewEvents(ServerRequest serverRequest) {
+        var events = reviewEventPublisher.events()
+                .map(event -> ServerSentEvent.builder(event.getReview())
+                        .event(event.getType().name().toLowerCase())
+                        .build());
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(events, new ParameterizedTypeReference<ServerSentEvent<Review>>() {});
     }
 }
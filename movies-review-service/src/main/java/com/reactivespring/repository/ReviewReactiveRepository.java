@@ -4,7 +4,12 @@ import com.reactivespring.domain.Review;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewReactiveRepositoryCustom {
     Flux<Review> findReviewByMovieInfoId(Long movieInfoId);
 
+    // movieInfoId IN (...), reviews for many movies in one query
+    Flux<Review> findReviewByMovieInfoIdIn(Collection<Long> movieInfoIds);
+
 }
@@ -0,0 +1,40 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.BulkItemResult;
+import com.reactivespring.domain.RatingSummary;
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Queries that can not be derived from the method name, implemented in ReviewReactiveRepositoryCustomImpl
+ */
+public interface ReviewReactiveRepositoryCustom {
+
+    /**
+     * Up to limit reviews in _id order, starting right after afterId (null for the first page)
+     * @param movieInfoId only the reviews of this movie, null for all of them
+     */
+    Flux<Review> findPage(Long movieInfoId, String afterId, int limit);
+
+    /**
+     * Sets the non null comment and rating of changes on the stored review in one findAndModify and returns the updated document.
+     * When changes carries a version, only that version is updated.
+     * Empty when there is no such review, or when the version does not match.
+     */
+    Mono<Review> update(String reviewId, Review changes);
+
+    /**
+     * One unordered insertMany for the whole batch, a failing element does not stop the others.
+     * Result indexes are positions in reviews, inserted elements get their generated id like with save.
+     */
+    Flux<BulkItemResult<Review>> insertUnordered(List<Review> reviews);
+
+    /**
+     * Count, sum, mean, min, max and histogram of the ratings of one movie, computed by mongo in one aggregation.
+     * Reviews without a rating are left out.
+     */
+    Mono<RatingSummary> ratingSummary(Long movieInfoId);
+}
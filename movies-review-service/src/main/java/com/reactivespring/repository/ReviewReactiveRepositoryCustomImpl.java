@@ -0,0 +1,152 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.domain.BulkItemResult;
+import com.reactivespring.domain.RatingSummary;
+import com.reactivespring.domain.Review;
+import com.reactivespring.util.PageCursor;
+import com.reactivespring.util.ReactiveTimer;
+import com.reactivespring.util.VersionCriteria;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// picked up by Spring Data through the "Impl" suffix and merged into ReviewReactiveRepository
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    // what reviewId is stored as, for the page cursors
+    private final Class<?> idFieldType;
+    // repository.operations, from the subscription to the last document
+    private final ReactiveTimer timer;
+
+    public ReviewReactiveRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate, MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.idFieldType = reactiveMongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Review.class)
+                .getRequiredIdProperty()
+                .getFieldType();
+        this.timer = new ReactiveTimer(meterRegistry, "repository.operations", "repository", "ReviewReactiveRepository");
+    }
+
+    @Override
+    public Flux<Review> findPage(Long movieInfoId, String afterId, int limit) {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "reviewId"))
+                .limit(limit);
+        if (movieInfoId != null) {
+            query.addCriteria(Criteria.where("movieInfoId").is(movieInfoId));
+        }
+        if (afterId != null) {
+            query.addCriteria(PageCursor.after("reviewId", idFieldType, afterId));
+        }
+        return timer.time("findPage", reactiveMongoTemplate.find(query, Review.class));
+    }
+
+    @Override
+    public Mono<Review> update(String reviewId, Review changes) {
+        var query = Query.query(Criteria.where("reviewId").is(reviewId));
+        if (changes.getVersion() != null) {
+            query.addCriteria(VersionCriteria.is("version", changes.getVersion()));
+        }
+        var update = new Update().inc("version", 1);
+        if (changes.getComment() != null) {
+            update.set("comment", changes.getComment());
+        }
+        if (changes.getRating() != null) {
+            update.set("rating", changes.getRating());
+        }
+        return timer.time("update", reactiveMongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Review.class));
+    }
+
+    @Override
+    public Flux<BulkItemResult<Review>> insertUnordered(List<Review> reviews) {
+        // same mapping as the template uses for save, _class included
+        var documents = reviews.stream()
+                .map(review -> {
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(review, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        var insertMany = reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))));
+        return timer.time("insertUnordered", insertMany)
+                .map(insertManyResult -> Map.<Integer, String>of())
+                // unordered: every element but the ones listed here made it in
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .flatMapIterable(writeErrors -> {
+                    var results = new ArrayList<BulkItemResult<Review>>(reviews.size());
+                    for (int i = 0; i < reviews.size(); i++) {
+                        var review = reviews.get(i);
+                        var error = writeErrors.get(i);
+                        if (error != null) {
+                            results.add(BulkItemResult.failed(i, review.getReviewId(), error, review));
+                        } else {
+                            // the driver has put the generated _id on the document
+                            review.setReviewId(id(documents.get(i).get("_id")));
+                            results.add(BulkItemResult.created(i, review.getReviewId(), review));
+                        }
+                    }
+                    return results;
+                });
+    }
+
+    @Override
+    public Mono<RatingSummary> ratingSummary(Long movieInfoId) {
+        // one group per whole rating point, served by the movieInfoId index
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null)),
+                Aggregation.project("rating").and(ArithmeticOperators.Floor.floorValueOf("rating")).as("bucket"),
+                Aggregation.group("bucket")
+                        .count().as("count")
+                        .sum("rating").as("sum")
+                        .min("rating").as("min")
+                        .max("rating").as("max"));
+        return timer.time("ratingSummary", reactiveMongoTemplate.aggregate(aggregation, Review.class, Document.class))
+                .collectList()
+                // at most one document per rating point, folding them here is cheap
+                .map(buckets -> {
+                    long count = 0;
+                    double sum = 0;
+                    Double min = null;
+                    Double max = null;
+                    var histogram = new TreeMap<Integer, Long>();
+                    for (var bucket : buckets) {
+                        var bucketCount = ((Number) bucket.get("count")).longValue();
+                        var bucketMin = ((Number) bucket.get("min")).doubleValue();
+                        var bucketMax = ((Number) bucket.get("max")).doubleValue();
+                        count += bucketCount;
+                        sum += ((Number) bucket.get("sum")).doubleValue();
+                        min = min == null ? bucketMin : Math.min(min, bucketMin);
+                        max = max == null ? bucketMax : Math.max(max, bucketMax);
+                        histogram.put(((Number) bucket.get("_id")).intValue(), bucketCount);
+                    }
+                    return new RatingSummary(movieInfoId, count, sum, count == 0 ? null : sum / count, min, max, histogram);
+                });
+    }
+
+    private String id(Object id) {
+        return id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id);
+    }
+}
@@ -24,10 +24,13 @@ public class ReviewRouter {
                              * 'request' needs to be passed to the handler
                              */
                             .POST("", reviewHandler::addReview)
+                            .POST("/bulk", reviewHandler::addReviews)
                             .GET("", reviewHandler::getReviews)
+                            .GET("/summary", reviewHandler::getRatingSummary)
                             .PUT("/{id}", reviewHandler::updateReview)
                             .DELETE("/{id}", reviewHandler::deleteReview)
-                            .GET("/stream", reviewHandler::getReviewsStream);
+                            .GET("/stream", reviewHandler::getReviewsStream)
+                            .GET("/events", reviewHandler::getReviewEvents);
 
                 })
                 .GET("/v1/helloworld", request -> ServerResponse.ok().bodyValue("hello world"))
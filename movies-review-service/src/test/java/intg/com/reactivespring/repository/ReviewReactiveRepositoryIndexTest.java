@@ -0,0 +1,76 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.config.MongoIndexInitializer;
+import com.reactivespring.domain.Review;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+/**
+ * Runs every ReviewReactiveRepository finder and asks mongo for the winning plan of the query it sent,
+ * fails as soon as one of them would fall back to a collection scan.
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({MongoIndexInitializer.class, QueryPlanRecorder.class})
+class ReviewReactiveRepositoryIndexTest {
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    QueryPlanRecorder queryPlanRecorder;
+
+    @BeforeEach
+    void setUp() {
+        mongoIndexInitializer.ensureIndexes().block();
+        var reviewsList = List.of(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review(null, 1L, "Awesome Movie1", 9.0),
+                new Review(null, 2L, "Excellent Movie", 8.0));
+        reviewReactiveRepository.saveAll(reviewsList).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @Test
+    void findReviewByMovieInfoId() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate, reviewReactiveRepository.findReviewByMovieInfoId(1L));
+    }
+
+    @Test
+    void findReviewByMovieInfoIdIn() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate,
+                reviewReactiveRepository.findReviewByMovieInfoIdIn(List.of(1L, 2L)));
+    }
+
+    @Test
+    void findPage() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate,
+                reviewReactiveRepository.findPage(null, new ObjectId().toHexString(), 10));
+    }
+
+    @Test
+    void findPage_byMovieInfoId() {
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate, reviewReactiveRepository.findPage(1L, null, 10));
+        queryPlanRecorder.assertNoCollectionScan(reactiveMongoTemplate,
+                reviewReactiveRepository.findPage(1L, new ObjectId().toHexString(), 10));
+    }
+}
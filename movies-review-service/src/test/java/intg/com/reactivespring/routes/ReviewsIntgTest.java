@@ -1,19 +1,32 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.BulkItemResult;
+import com.reactivespring.domain.RatingSummary;
 import com.reactivespring.domain.Review;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.test.StepVerifier;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.springframework.test.util.AssertionErrors.assertEquals;
 
@@ -28,6 +41,9 @@ public class ReviewsIntgTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
     static String REVIEWS_URL = "/v1/reviews";
 
     @BeforeEach
@@ -68,6 +84,81 @@ public class ReviewsIntgTest {
                     assert  savedReview.getReviewId() != null;
                 });
     }
+    @Test
+    void addReviews_bulk() {
+        var body = "{\"movieInfoId\":3,\"comment\":\"Good Movie\",\"rating\":7.0}\n"
+                // invalid, no movieInfoId
+                + "{\"comment\":\"No Movie\",\"rating\":5.0}\n"
+                // duplicate key, "abc" is already there
+                + "{\"reviewId\":\"abc\",\"movieInfoId\":1,\"comment\":\"Duplicate\",\"rating\":1.0}\n"
+                + "{\"movieInfoId\":3,\"comment\":\"Great Movie\",\"rating\":8.0}\n";
+
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkItemResult.class)
+                .hasSize(4)
+                .consumeWith(listEntityExchangeResult -> {
+                    var results = new HashMap<Long, BulkItemResult>();
+                    listEntityExchangeResult.getResponseBody().forEach(result -> results.put(result.getIndex(), result));
+                    assert results.get(0L).getStatus() == BulkItemResult.Status.CREATED;
+                    assert results.get(0L).getId() != null;
+                    assert results.get(1L).getStatus() == BulkItemResult.Status.FAILED;
+                    assert results.get(1L).getError().contains("review.movieInfoId: must not be null");
+                    assert results.get(2L).getStatus() == BulkItemResult.Status.FAILED;
+                    assert results.get(2L).getError().contains("duplicate key");
+                    assert results.get(3L).getStatus() == BulkItemResult.Status.CREATED;
+                });
+
+        StepVerifier.create(reviewReactiveRepository.findReviewByMovieInfoId(3L))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void getRatingSummary() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(RatingSummary.class)
+                .consumeWith(ratingSummaryEntityExchangeResult -> {
+                    var ratingSummary = ratingSummaryEntityExchangeResult.getResponseBody();
+                    assert ratingSummary != null;
+                    assert ratingSummary.getCount() == 2;
+                    assert ratingSummary.getSum() == 18.0;
+                    assert ratingSummary.getMean() == 9.0;
+                    assert ratingSummary.getMin() == 9.0;
+                    assert ratingSummary.getMax() == 9.0;
+                    assert ratingSummary.getHistogram().equals(Map.of(9, 2L));
+                });
+    }
+
+    @Test
+    void getRatingSummary_noReviews() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=99")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(RatingSummary.class)
+                .consumeWith(ratingSummaryEntityExchangeResult -> {
+                    var ratingSummary = ratingSummaryEntityExchangeResult.getResponseBody();
+                    assert ratingSummary != null;
+                    assert ratingSummary.getCount() == 0;
+                    assert ratingSummary.getMean() == null;
+                    assert ratingSummary.getHistogram().isEmpty();
+                });
+    }
+
     @Test
     void getReviews() {
         // Given
@@ -103,6 +194,73 @@ public class ReviewsIntgTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        // Given
+        var uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("movieInfoIds", "1,2,3")
+                .buildAndExpand()
+                .toUri();
+
+        // When
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviewsPage() {
+        // "abc" is a String id, the other two are generated ObjectIds, a page size of 1 walks across both kinds
+        var seenIds = new ArrayList<String>();
+        String cursor = null;
+        for (int page = 0; page < 3; page++) {
+            var uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                    .queryParam("limit", 1)
+                    .queryParamIfPresent("after", Optional.ofNullable(cursor))
+                    .buildAndExpand()
+                    .toUri();
+            var result = webTestClient
+                    .get()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(Review.class)
+                    .hasSize(1)
+                    .returnResult();
+            seenIds.add(result.getResponseBody().get(0).getReviewId());
+            cursor = result.getResponseHeaders().getFirst("X-Next-Cursor");
+        }
+
+        // every review exactly once, and no cursor after the last page
+        assert new HashSet<>(seenIds).size() == 3;
+        assert cursor == null;
+    }
+
+    @Test
+    void getReviewsPage_byMovieInfoId() {
+        var uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("movieInfoId", 1)
+                .queryParam("limit", 5)
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
     @Test
     void updateReviewById() {
         var id = "abc";
@@ -122,6 +280,69 @@ public class ReviewsIntgTest {
                 });
     }
 
+    @Test
+    void updateReviewById_storedWithoutVersion() {
+        // written before Review had a version
+        reactiveMongoTemplate.insert(new Document("_id", "legacy")
+                        .append("movieInfoId", 3L)
+                        .append("comment", "Old Comment")
+                        .append("rating", 7.0),
+                reactiveMongoTemplate.getCollectionName(Review.class)).block();
+
+        // a client that read the missing version as 0
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "legacy")
+                .bodyValue(Review.builder()
+                        .comment("New Comment")
+                        .version(0L)
+                        .build())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Review.class)
+                .consumeWith(reviewEntityExchangeResult -> {
+                    var responseBody = reviewEntityExchangeResult.getResponseBody();
+                    assert "New Comment".equals(responseBody.getComment());
+                    assert 7.0 == responseBody.getRating();
+                    assert 1L == responseBody.getVersion();
+                });
+    }
+
+    @Test
+    void updateReviewById_versioned() {
+        var id = "abc";
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", id)
+                .bodyValue(Review.builder()
+                        .comment("New Comment")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Review.class)
+                .consumeWith(reviewEntityExchangeResult -> {
+                    var responseBody = reviewEntityExchangeResult.getResponseBody();
+                    assert "New Comment".equals(responseBody.getComment());
+                    // rating was not sent, the stored one is kept
+                    assert 9.0 == responseBody.getRating();
+                    assert 1L == responseBody.getVersion();
+                });
+
+        // the update above moved it to version 1, version 0 is stale
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", id)
+                .bodyValue(Review.builder()
+                        .comment("Newer Comment")
+                        .version(0L)
+                        .build())
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void deleteReviewById() {
         var id = "abc";
@@ -132,4 +353,47 @@ public class ReviewsIntgTest {
                 .expectStatus()
                 .isNoContent();
     }
+
+    @Test
+    void getReviewsByMovieInfoId_recreatedIsModified() {
+        var eTag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+        // back at version 0, under the same id
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review("abc", 1L, "Not that awesome", 6.0))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        // the old ETag does not match anymore, the new review is sent
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .value(reviews -> assertEquals("rating of the review created again", 6.0, reviews.stream()
+                        .filter(review -> "abc".equals(review.getReviewId()))
+                        .findFirst()
+                        .map(Review::getRating)
+                        .orElse(null)));
+    }
 }
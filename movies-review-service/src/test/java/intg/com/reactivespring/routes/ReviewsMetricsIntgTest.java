@@ -0,0 +1,106 @@
+package com.reactivespring.routes;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The meters of the service, as Prometheus scrapes them from /actuator/prometheus.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureMetrics // the Prometheus registry is left out of the tests otherwise
+public class ReviewsMetricsIntgTest {
+
+    static String REVIEWS_URL = "/v1/reviews";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @BeforeEach
+    void setup() {
+        reviewReactiveRepository.save(new Review("abc", 1L, "Awesome Movie", 9.0))
+                .block();
+    }
+
+    @AfterEach
+    void teardown() {
+        reviewReactiveRepository.deleteAll()
+                .block();
+    }
+
+    @Test
+    void prometheus() {
+        webTestClient.post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Excellent Movie", 8.0))
+                .exchange()
+                .expectStatus().isCreated();
+        webTestClient.post()
+                .uri(REVIEWS_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"movieInfoId\":2,\"comment\":\"Good Movie\",\"rating\":7.0}\n")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?limit=1")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(Review.builder().comment("New Comment").build())
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .consumeWith(stringEntityExchangeResult -> {
+                    var body = Objects.requireNonNull(stringEntityExchangeResult.getResponseBody());
+                    assertMeter(body, "http_server_requests_seconds_bucket", "application=\"movies-review-service\"");
+                    // the custom operations, timed up to their last document
+                    assertMeter(body, "repository_operations_seconds_count", "repository=\"ReviewReactiveRepository\"",
+                            "operation=\"findPage\"", "outcome=\"success\"");
+                    assertMeter(body, "repository_operations_seconds_count", "operation=\"update\"");
+                    assertMeter(body, "repository_operations_seconds_count", "operation=\"insertUnordered\"");
+                    assertMeter(body, "repository_operations_seconds_count", "operation=\"ratingSummary\"");
+                    assertMeter(body, "repository_operations_seconds_bucket", "operation=\"ratingSummary\"");
+                    assertMeter(body, "spring_data_repository_invocations_seconds_count",
+                            "repository=\"ReviewReactiveRepository\"");
+                    assertMeter(body, "mongodb_driver_commands_seconds_count", "command=\"aggregate\"");
+                    // the POST, the bulk insert and the update
+                    assertMeter(body, "sink_emissions_total", "sink=\"reviews\"", "result=\"OK\"");
+                });
+    }
+
+    private static void assertMeter(String body, String name, String... labels) {
+        assertTrue(Arrays.stream(body.split("\n"))
+                        .anyMatch(line -> line.startsWith(name + "{")
+                                && Arrays.stream(labels).allMatch(line::contains)),
+                name + " " + Arrays.toString(labels));
+    }
+}
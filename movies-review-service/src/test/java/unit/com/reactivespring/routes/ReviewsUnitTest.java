@@ -1,16 +1,24 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.RatingSummary;
 import com.reactivespring.domain.Review;
+import com.reactivespring.event.ReviewEventPublisher;
 import com.reactivespring.exceptionHandler.GlobalErrorHandler;
+import com.reactivespring.filter.RequestDeadlineFilter;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.util.ReactiveTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -18,7 +26,11 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.when;
 
@@ -29,7 +41,8 @@ import static org.mockito.Mockito.when;
 /**
  * Specify the two beans this unit test requires
  */
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, ReviewEventPublisher.class, GlobalErrorHandler.class,
+        RequestDeadlineFilter.class, ReactiveTracing.class, SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
 
@@ -114,6 +127,44 @@ public class ReviewsUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getReviews_smile() {
+        List<Review> listToReturn = Lists.newArrayList(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review("def", 1L, "Awesome Movie1", 9.0));
+        when(reviewReactiveRepository.findAll())
+                .thenReturn(Flux.fromIterable(listToReturn));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                // what movies-service asks for
+                .header(HttpHeaders.ACCEPT, "application/x-jackson-smile, application/json;q=0.9")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().contentType(ReviewHandler.APPLICATION_SMILE)
+                .expectBodyList(Review.class)
+                .isEqualTo(listToReturn);
+    }
+
+    @Test
+    void getReviews_jsonPreferred() {
+        when(reviewReactiveRepository.findAll())
+                .thenReturn(Flux.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                .header(HttpHeaders.ACCEPT, "application/json, application/x-jackson-smile;q=0.5")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
     @Test
     void getReviewsByMovieInfoId() {
         // Given
@@ -141,12 +192,186 @@ public class ReviewsUnitTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        // Given
+        var uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("movieInfoIds", "1,2")
+                .buildAndExpand()
+                .toUri();
+
+        List<Review> listToReturn = Lists.newArrayList(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review("def", 1L, "Awesome Movie1", 9.0),
+                new Review("hij", 2L, "Excellent Movie", 8.0));
+        when(reviewReactiveRepository.findReviewByMovieInfoIdIn(Set.of(1L, 2L)))
+                .thenReturn(Flux.fromIterable(listToReturn));
+
+        // When
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviewsPage() {
+        // Given
+        List<Review> listToReturn = Lists.newArrayList(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review("def", 1L, "Awesome Movie1", 9.0),
+                new Review("hij", 2L, "Excellent Movie", 8.0));
+        // limit + 1 is asked for, to know if there is a next page
+        when(reviewReactiveRepository.findPage(null, null, 3))
+                .thenReturn(Flux.fromIterable(listToReturn));
+
+        // When
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().exists("X-Next-Cursor")
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getRatingSummary() {
+        when(reviewReactiveRepository.ratingSummary(1L))
+                .thenReturn(Mono.just(new RatingSummary(1L, 2, 17.0, 8.5, 8.0, 9.0, Map.of(8, 1L, 9, 1L))));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(RatingSummary.class)
+                .consumeWith(ratingSummaryEntityExchangeResult -> {
+                    var ratingSummary = ratingSummaryEntityExchangeResult.getResponseBody();
+                    assert ratingSummary != null;
+                    assert ratingSummary.getMean() == 8.5;
+                    assert ratingSummary.getHistogram().get(8) == 1L;
+                });
+    }
+
+    @Test
+    void getReviews_notModified() {
+        var review = new Review("abc", 1L, "Awesome Movie", 9.0, 0L);
+        when(reviewReactiveRepository.findReviewByMovieInfoId(1L))
+                .thenAnswer(invocation -> Flux.just(review));
+
+        var eTag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().valueEquals(HttpHeaders.VARY, "Accept, Accept-Encoding")
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(eTag);
+
+        // nothing changed, no body
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        // the review was updated
+        review.setRating(7.0);
+        review.setVersion(1L);
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().value(HttpHeaders.ETAG, newETag -> assertNotEquals(eTag, newETag));
+    }
+
+    @Test
+    void getReviews_streamedWithoutETag() {
+        when(reviewReactiveRepository.findAll())
+                .thenReturn(Flux.just(new Review("abc", 1L, "Awesome Movie", 9.0, 0L)));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().doesNotExist(HttpHeaders.ETAG)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getRatingSummary_missingMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoId must be present");
+    }
+
+    @Test
+    void getReviews_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoId must be a number");
+    }
+
+    @Test
+    void getReviewsPage_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=abc&limit=10")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoId must be a number");
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds_invalidId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoIds must be numbers");
+    }
+
     @Test
     void updateReviewById() {
-        var review = new Review(null, 1L, "Awesome Movie", 9.0);
-        when(reviewReactiveRepository.findById(isA(String.class)))
-                .thenReturn(Mono.just(review));
-        when(reviewReactiveRepository.save(isA(Review.class)))
+        var review = new Review("abc", 1L, "New Comment", 2D, 1L);
+        when(reviewReactiveRepository.update(isA(String.class), isA(Review.class)))
                 .thenReturn(Mono.just(review));
 
         var id = "abc";
@@ -168,7 +393,7 @@ public class ReviewsUnitTest {
 
     @Test
     void updateReviewById_validation() {
-        when(reviewReactiveRepository.findById(isA(String.class)))
+        when(reviewReactiveRepository.update(isA(String.class), isA(Review.class)))
                 .thenReturn(Mono.empty());
 
         var id = "abc";
@@ -184,6 +409,27 @@ public class ReviewsUnitTest {
                 .isNotFound();
     }
 
+    @Test
+    void updateReviewById_staleVersion() {
+        when(reviewReactiveRepository.update(isA(String.class), isA(Review.class)))
+                .thenReturn(Mono.empty());
+        when(reviewReactiveRepository.existsById(isA(String.class)))
+                .thenReturn(Mono.just(true));
+
+        var id = "abc";
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", id)
+                .bodyValue(Review.builder()
+                        .comment("New Comment")
+                        .rating(2D)
+                        .version(0L)
+                        .build())
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void deleteReviewById() {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
@@ -199,4 +445,18 @@ public class ReviewsUnitTest {
                 .expectStatus()
                 .isNoContent();
     }
+
+    @Test
+    void getReviews_deadlineExceeded() {
+        // the query never answers, the caller only gives it 100ms
+        when(reviewReactiveRepository.findAll()).thenReturn(Flux.never());
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                .header("X-Request-Timeout", "100")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
 }
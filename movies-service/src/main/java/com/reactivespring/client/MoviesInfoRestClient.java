@@ -4,37 +4,85 @@ import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.ETagged;
+import com.reactivespring.util.ReactiveCache;
+import com.reactivespring.util.ReactiveTracing;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
+import com.reactivespring.util.HedgePolicy;
+import com.reactivespring.util.RequestDeadline;
+import com.reactivespring.util.RetryPolicy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.List;
 
 @Component
 @Slf4j
 public class MoviesInfoRestClient {
 
     private WebClient webClient;
+    private ReactiveCache<String, ETagged<MovieInfo>> movieInfoCache;
+    private RetryPolicy movieInfoRetryPolicy;
+    private CircuitBreaker movieInfoCircuitBreaker;
+    private Bulkhead movieInfoBulkhead;
+    private HedgePolicy movieInfoHedgePolicy;
+    private ReactiveTracing reactiveTracing;
 
     @Value("${restClient.movieInfoUrl}")
     private String movieInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(@Qualifier("movieInfoWebClient") WebClient webClient, ReactiveCache<String, ETagged<MovieInfo>> movieInfoCache,
+                                @Qualifier("movieInfoRetryPolicy") RetryPolicy movieInfoRetryPolicy,
+                                @Qualifier("movieInfoCircuitBreaker") CircuitBreaker movieInfoCircuitBreaker,
+                                @Qualifier("movieInfoBulkhead") Bulkhead movieInfoBulkhead,
+                                @Qualifier("movieInfoHedgePolicy") HedgePolicy movieInfoHedgePolicy,
+                                ReactiveTracing reactiveTracing) {
         this.webClient = webClient;
+        this.movieInfoCache = movieInfoCache;
+        this.movieInfoRetryPolicy = movieInfoRetryPolicy;
+        this.movieInfoCircuitBreaker = movieInfoCircuitBreaker;
+        this.movieInfoBulkhead = movieInfoBulkhead;
+        this.movieInfoHedgePolicy = movieInfoHedgePolicy;
+        this.reactiveTracing = reactiveTracing;
     }
 
+    /**
+     * Served from the movie info cache, only a miss (or a stale entry being refreshed) reaches movies-info-service.
+     * Even with the cache disabled, concurrent calls for the same id share one upstream call, see ReactiveCache.
+     * A stale or expired entry is revalidated with its ETag, it is only downloaded again when it changed.
+     *
+     * The deadline of every caller is enforced here, on its own subscription: a caller that gives up early
+     * does not cut the shared call short for the others. The shared call goes by the latest deadline of its callers,
+     * that is what its retries and the X-Request-Timeout header sent downstream are bound by.
+     */
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
-        var url = movieInfoUrl.concat("/" + movieId);
+        return movieInfoCache.get(movieId, this::fetchMovieInfo)
+                .map(ETagged::getValue)
+                .transform(RequestDeadline::enforce);
+    }
+
+    private Mono<ETagged<MovieInfo>> fetchMovieInfo(String movieId, ETagged<MovieInfo> previous) {
+        // a uri template, the metrics of the call are tagged with the template and not with every movie id
+        var url = movieInfoUrl.concat("/{id}");
         return webClient
                 .get()
-                .uri(url)
+                .uri(url, movieId)
+                .headers(headers -> {
+                    if (previous != null && previous.getETag() != null) {
+                        headers.setIfNoneMatch(previous.getETag());
+                    }
+                })
                 .retrieve()
                 // if status is 4xx, it will be custom handled
                 .onStatus(HttpStatus::is4xxClientError,  clientResponse -> {
@@ -58,11 +106,54 @@ public class MoviesInfoRestClient {
                                     "Server error in MovieInfoService " + responseMessage
                             )));
                 })
-                .bodyToMono(MovieInfo.class)
-                // retry the call for 3x if the call fails
-//                .retry(3)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .toEntity(MovieInfo.class)
+                // 304, what we have is still current
+                .map(responseEntity -> responseEntity.getStatusCode() == HttpStatus.NOT_MODIFIED
+                        ? previous
+                        : new ETagged<>(responseEntity.getBody(), responseEntity.getHeaders().getETag()))
+                // backoff, budget and deadline aware retries, see RetryConfig
+                .transform(movieInfoCircuitBreaker::apply)
+                .transform(movieInfoBulkhead::apply)
+                // a hedge goes through the circuit breaker and the bulkhead like any other call
+                .transform(movieInfoHedgePolicy::apply)
+                .retryWhen(movieInfoRetryPolicy)
+                // around the retries, the circuit breaker sees a call cut short by the deadline as cancelled, not as failed
+                .transform(RequestDeadline::enforce)
+                // off unless switched on, see ReactiveTracing
+                .transform(reactiveTracing.mono("movieInfoClient.retrieve"));
+    }
+
+    /**
+     * Fetches all the given movie infos in one call, ids without a MovieInfo are simply left out
+     */
+    public Flux<MovieInfo> retrieveMovieInfos(List<String> movieIds) {
+        var uri = UriComponentsBuilder.fromHttpUrl(movieInfoUrl)
+                .queryParam("ids", "{ids}")
+                .build()
+                .toUriString();
+        return webClient
+                .get()
+                .uri(uri, String.join(",", movieIds))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError,  clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
+                                    responseMessage, clientResponse.statusCode().value()
+                            )));
+                })
+                .onStatus(HttpStatus::is5xxServerError,  clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "Server error in MovieInfoService " + responseMessage
+                            )));
+                })
+                .bodyToFlux(MovieInfo.class)
+                .transform(movieInfoCircuitBreaker::apply)
+                .transform(movieInfoBulkhead::apply)
+                .retryWhen(movieInfoRetryPolicy)
+                .transform(RequestDeadline::enforce);
     }
 
     public Flux<MovieInfo> retrieveMovieInfoStream() {
@@ -70,6 +161,8 @@ public class MoviesInfoRestClient {
         return webClient
                 .get()
                 .uri(url)
+                // served as NDJSON only, instead of the Smile first default of the client
+                .accept(MediaType.APPLICATION_NDJSON)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError,  clientResponse -> {
                     log.info("Status code is: {}", clientResponse.statusCode().value());
@@ -92,6 +185,6 @@ public class MoviesInfoRestClient {
                             )));
                 })
                 .bodyToFlux(MovieInfo.class)
-                .log();
+                .transform(reactiveTracing.flux("movieInfoClient.stream"));
     }
 }
@@ -1,12 +1,19 @@
 package com.reactivespring.client;
 
+import com.reactivespring.domain.RatingSummary;
 import com.reactivespring.domain.Review;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
+import com.reactivespring.util.HedgePolicy;
+import com.reactivespring.util.RequestDeadline;
+import com.reactivespring.util.RetryPolicy;
+import com.reactivespring.util.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -15,27 +22,60 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+
 @Component
 @Slf4j
 public class ReviewsRestClient {
     private WebClient webClient;
-    public ReviewsRestClient(WebClient webClient) {
+    private RetryPolicy reviewsRetryPolicy;
+    private CircuitBreaker reviewsCircuitBreaker;
+    private Bulkhead reviewsBulkhead;
+    private HedgePolicy reviewsHedgePolicy;
+    private final SingleFlight<String, List<Review>> reviewsSingleFlight;
+
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient,
+                             @Qualifier("reviewsRetryPolicy") RetryPolicy reviewsRetryPolicy,
+                             @Qualifier("reviewsCircuitBreaker") CircuitBreaker reviewsCircuitBreaker,
+                             @Qualifier("reviewsBulkhead") Bulkhead reviewsBulkhead,
+                             @Qualifier("reviewsHedgePolicy") HedgePolicy reviewsHedgePolicy,
+                             // bounds a call shared by several requests, see SingleFlight
+                             @Value("${request.timeout.default:5s}") Duration sharedCallTimeout) {
         this.webClient = webClient;
+        this.reviewsSingleFlight = new SingleFlight<>(sharedCallTimeout);
+        this.reviewsRetryPolicy = reviewsRetryPolicy;
+        this.reviewsCircuitBreaker = reviewsCircuitBreaker;
+        this.reviewsBulkhead = reviewsBulkhead;
+        this.reviewsHedgePolicy = reviewsHedgePolicy;
     }
 
 
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
+    /**
+     * Concurrent calls for the same movie share one upstream call.
+     * The reviews are collected to a List, so a subscriber joining late still gets all of them,
+     * and a hedged call races for the whole List.
+     * The deadline of every caller is enforced on its own subscription, see MoviesInfoRestClient.retrieveMovieInfo
+     */
     public Flux<Review> retrieveReviews(String movieId) {
+        return reviewsSingleFlight.execute(movieId, this::fetchReviews)
+                .transform(RequestDeadline::enforce)
+                .flatMapIterable(reviews -> reviews);
+    }
+
+    private Mono<List<Review>> fetchReviews(String movieId) {
+        // a uri template, the metrics of the call are tagged with the template and not with every movie id
         var uri = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
-                .queryParam("movieInfoId", movieId)
-                .buildAndExpand()
-                .toString();
+                .queryParam("movieInfoId", "{movieInfoId}")
+                .build()
+                .toUriString();
 
         return webClient
                 .get()
-                .uri(uri)
+                .uri(uri, movieId)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is: {}", clientResponse.statusCode().value());
@@ -55,7 +95,82 @@ public class ReviewsRestClient {
                             )));
                 })
                 .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec());
+                .collectList()
+                .transform(reviewsCircuitBreaker::apply)
+                .transform(reviewsBulkhead::apply)
+                .transform(reviewsHedgePolicy::apply)
+                .retryWhen(reviewsRetryPolicy)
+                // the latest deadline of the callers sharing the call, see SingleFlight
+                .transform(RequestDeadline::enforce);
+    }
+
+    /**
+     * Reviews of all the given movies in one call
+     */
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        var uri = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoIds", "{movieInfoIds}")
+                .build()
+                .toUriString();
 
+        return webClient
+                .get()
+                .uri(uri, String.join(",", movieIds))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    if (clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                        return Mono.empty();
+                    }
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new ReviewsClientException(
+                                    responseMessage)));
+                })
+                .onStatus(HttpStatus::is5xxServerError,  clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
+                                    "Server error in ReviewsService " + responseMessage
+                            )));
+                })
+                .bodyToFlux(Review.class)
+                .transform(reviewsCircuitBreaker::apply)
+                .transform(reviewsBulkhead::apply)
+                .retryWhen(reviewsRetryPolicy)
+                .transform(RequestDeadline::enforce);
+    }
+
+    /**
+     * Rating aggregates of one movie, computed by the reviews service instead of shipping every review
+     */
+    public Mono<RatingSummary> retrieveRatingSummary(String movieId) {
+        var uri = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .path("/summary")
+                .queryParam("movieInfoId", "{movieInfoId}")
+                .build()
+                .toUriString();
+
+        return webClient
+                .get()
+                .uri(uri, movieId)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new ReviewsClientException(
+                                    responseMessage)));
+                })
+                .onStatus(HttpStatus::is5xxServerError,  clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
+                                    "Server error in ReviewsService " + responseMessage
+                            )));
+                })
+                .bodyToMono(RatingSummary.class)
+                .transform(reviewsCircuitBreaker::apply)
+                .transform(reviewsBulkhead::apply)
+                .retryWhen(reviewsRetryPolicy)
+                .transform(RequestDeadline::enforce);
     }
 }
@@ -0,0 +1,32 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.util.ETagged;
+import com.reactivespring.util.ReactiveCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * hold the caches used by the rest clients
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Movie info rarely changes, so the hot titles are served from memory instead of calling movies-info-service.
+     * Kept with their ETag, an entry that is refreshed but did not change costs a 304 without a body.
+     */
+    @Bean
+    public ReactiveCache<String, ETagged<MovieInfo>> movieInfoCache(
+            @Value("${restClient.movieInfoCache.enabled:true}") boolean enabled,
+            @Value("${restClient.movieInfoCache.maxSize:10000}") int maxSize,
+            @Value("${restClient.movieInfoCache.ttl:60s}") Duration ttl,
+            @Value("${restClient.movieInfoCache.staleWhileRevalidate:5m}") Duration staleWhileRevalidate,
+            // bounds a load shared by several requests, and the background refreshes that have no request at all
+            @Value("${request.timeout.default:5s}") Duration loadTimeout) {
+        return new ReactiveCache<>(enabled, maxSize, ttl, staleWhileRevalidate, loadTimeout);
+    }
+}
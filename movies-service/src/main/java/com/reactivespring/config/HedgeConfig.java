@@ -0,0 +1,50 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.HedgePolicy;
+import com.reactivespring.util.LatencyTracker;
+import com.reactivespring.util.RetryBudget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Hedged requests, opt-in per rest client. Only the idempotent single lookups are hedged,
+ * each client keeps its own latency percentile and its own hedge budget.
+ */
+@Configuration
+public class HedgeConfig {
+
+    @Bean
+    public HedgePolicy movieInfoHedgePolicy(
+            @Value("${restClient.movieInfo.hedge.enabled:false}") boolean enabled,
+            @Value("${restClient.movieInfo.hedge.delay:0ms}") Duration delay,
+            @Value("${restClient.movieInfo.hedge.percentile:0.95}") double percentile,
+            @Value("${restClient.movieInfo.hedge.initialDelay:100ms}") Duration initialDelay,
+            @Value("${restClient.movieInfo.hedge.minDelay:10ms}") Duration minDelay,
+            @Value("${restClient.movieInfo.hedge.latencyWindowSize:1000}") int latencyWindowSize,
+            @Value("${restClient.movieInfo.hedge.budget.ratio:0.05}") double ratio,
+            @Value("${restClient.movieInfo.hedge.budget.minHedgesPerSecond:1}") int minHedgesPerSecond,
+            @Value("${restClient.movieInfo.hedge.budget.window:10s}") Duration window) {
+        return new HedgePolicy("movieInfo", enabled, delay, initialDelay, minDelay,
+                new LatencyTracker(latencyWindowSize, percentile, 100),
+                new RetryBudget(ratio, minHedgesPerSecond, window));
+    }
+
+    @Bean
+    public HedgePolicy reviewsHedgePolicy(
+            @Value("${restClient.reviews.hedge.enabled:false}") boolean enabled,
+            @Value("${restClient.reviews.hedge.delay:0ms}") Duration delay,
+            @Value("${restClient.reviews.hedge.percentile:0.95}") double percentile,
+            @Value("${restClient.reviews.hedge.initialDelay:100ms}") Duration initialDelay,
+            @Value("${restClient.reviews.hedge.minDelay:10ms}") Duration minDelay,
+            @Value("${restClient.reviews.hedge.latencyWindowSize:1000}") int latencyWindowSize,
+            @Value("${restClient.reviews.hedge.budget.ratio:0.05}") double ratio,
+            @Value("${restClient.reviews.hedge.budget.minHedgesPerSecond:1}") int minHedgesPerSecond,
+            @Value("${restClient.reviews.hedge.budget.window:10s}") Duration window) {
+        return new HedgePolicy("reviews", enabled, delay, initialDelay, minDelay,
+                new LatencyTracker(latencyWindowSize, percentile, 100),
+                new RetryBudget(ratio, minHedgesPerSecond, window));
+    }
+}
@@ -0,0 +1,63 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One circuit breaker and one bulkhead per downstream service, so a slow reviews service can not take movie infos down with it
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker movieInfoCircuitBreaker(
+            @Value("${restClient.movieInfo.circuitBreaker.failureRateThreshold:50}") float failureRateThreshold,
+            @Value("${restClient.movieInfo.circuitBreaker.slowCallRateThreshold:100}") float slowCallRateThreshold,
+            @Value("${restClient.movieInfo.circuitBreaker.slowCallDuration:2s}") Duration slowCallDuration,
+            @Value("${restClient.movieInfo.circuitBreaker.slidingWindowSize:100}") int slidingWindowSize,
+            @Value("${restClient.movieInfo.circuitBreaker.minimumNumberOfCalls:20}") int minimumNumberOfCalls,
+            @Value("${restClient.movieInfo.circuitBreaker.waitDurationInOpenState:10s}") Duration waitDurationInOpenState,
+            @Value("${restClient.movieInfo.circuitBreaker.permittedCallsInHalfOpenState:5}") int permittedCallsInHalfOpenState) {
+        return new CircuitBreaker("movieInfo", failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+                slidingWindowSize, minimumNumberOfCalls, waitDurationInOpenState, permittedCallsInHalfOpenState,
+                // 5xx, timeouts and connection errors, a 4xx is an answer of a healthy service
+                ex -> ex instanceof MoviesInfoServerException
+                        || ex instanceof TimeoutException
+                        || ex instanceof WebClientRequestException);
+    }
+
+    @Bean
+    public CircuitBreaker reviewsCircuitBreaker(
+            @Value("${restClient.reviews.circuitBreaker.failureRateThreshold:50}") float failureRateThreshold,
+            @Value("${restClient.reviews.circuitBreaker.slowCallRateThreshold:100}") float slowCallRateThreshold,
+            @Value("${restClient.reviews.circuitBreaker.slowCallDuration:2s}") Duration slowCallDuration,
+            @Value("${restClient.reviews.circuitBreaker.slidingWindowSize:100}") int slidingWindowSize,
+            @Value("${restClient.reviews.circuitBreaker.minimumNumberOfCalls:20}") int minimumNumberOfCalls,
+            @Value("${restClient.reviews.circuitBreaker.waitDurationInOpenState:10s}") Duration waitDurationInOpenState,
+            @Value("${restClient.reviews.circuitBreaker.permittedCallsInHalfOpenState:5}") int permittedCallsInHalfOpenState) {
+        return new CircuitBreaker("reviews", failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+                slidingWindowSize, minimumNumberOfCalls, waitDurationInOpenState, permittedCallsInHalfOpenState,
+                ex -> ex instanceof ReviewsServerException
+                        || ex instanceof TimeoutException
+                        || ex instanceof WebClientRequestException);
+    }
+
+    @Bean
+    public Bulkhead movieInfoBulkhead(@Value("${restClient.movieInfo.bulkhead.maxConcurrentCalls:100}") int maxConcurrentCalls) {
+        return new Bulkhead("movieInfo", maxConcurrentCalls);
+    }
+
+    @Bean
+    public Bulkhead reviewsBulkhead(@Value("${restClient.reviews.bulkhead.maxConcurrentCalls:100}") int maxConcurrentCalls) {
+        return new Bulkhead("reviews", maxConcurrentCalls);
+    }
+}
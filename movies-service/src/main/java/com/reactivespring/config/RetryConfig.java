@@ -0,0 +1,46 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.RetryBudget;
+import com.reactivespring.util.RetryPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * One retry policy, with its own retry budget, per rest client.
+ * A brownout of one upstream uses up its own budget only.
+ */
+@Configuration
+public class RetryConfig {
+
+    @Bean
+    public RetryPolicy movieInfoRetryPolicy(
+            @Value("${restClient.movieInfo.retry.maxRetries:3}") int maxRetries,
+            @Value("${restClient.movieInfo.retry.initialBackoff:100ms}") Duration initialBackoff,
+            @Value("${restClient.movieInfo.retry.maxBackoff:2s}") Duration maxBackoff,
+            @Value("${restClient.movieInfo.retry.budget.ratio:0.1}") double ratio,
+            @Value("${restClient.movieInfo.retry.budget.minRetriesPerSecond:10}") int minRetriesPerSecond,
+            @Value("${restClient.movieInfo.retry.budget.window:10s}") Duration window) {
+        return new RetryPolicy("movieInfo", maxRetries, initialBackoff, maxBackoff,
+                new RetryBudget(ratio, minRetriesPerSecond, window),
+                // retry only for 5xx, leaves the 4xx alone
+                ex -> ex instanceof MoviesInfoServerException);
+    }
+
+    @Bean
+    public RetryPolicy reviewsRetryPolicy(
+            @Value("${restClient.reviews.retry.maxRetries:3}") int maxRetries,
+            @Value("${restClient.reviews.retry.initialBackoff:100ms}") Duration initialBackoff,
+            @Value("${restClient.reviews.retry.maxBackoff:2s}") Duration maxBackoff,
+            @Value("${restClient.reviews.retry.budget.ratio:0.1}") double ratio,
+            @Value("${restClient.reviews.retry.budget.minRetriesPerSecond:10}") int minRetriesPerSecond,
+            @Value("${restClient.reviews.retry.budget.window:10s}") Duration window) {
+        return new RetryPolicy("reviews", maxRetries, initialBackoff, maxBackoff,
+                new RetryBudget(ratio, minRetriesPerSecond, window),
+                ex -> ex instanceof ReviewsServerException);
+    }
+}
@@ -1,23 +1,138 @@
 package com.reactivespring.config;
 
+import com.reactivespring.util.RequestDeadline;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 /**
- * hold the bean of WebClient
+ * hold the beans of WebClient, one per downstream service
+ *
+ * Each one has its own connection pool, a burst towards the reviews service can not starve the movie info calls of connections.
+ * The pool metrics are published by Reactor Netty as reactor.netty.connection.provider.*, tagged with the pool name:
+ * the total, active, idle and pending connections, and the time spent waiting for a connection as pending.connections.time.
+ *
+ * The other services are asked for Smile first: the same Jackson mapping as JSON, but binary,
+ * smaller on the wire and cheaper to write and parse. A service that does not serve it answers with JSON.
+ * Bigger bodies can also come back gzipped, see server.compression on the other side.
  */
 @Configuration
 public class WebClientConfig {
 
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider movieInfoConnectionProvider(
+            @Value("${restClient.movieInfo.pool.maxConnections:100}") int maxConnections,
+            @Value("${restClient.movieInfo.pool.pendingAcquireMaxCount:500}") int pendingAcquireMaxCount,
+            @Value("${restClient.movieInfo.pool.pendingAcquireTimeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${restClient.movieInfo.pool.maxIdleTime:30s}") Duration maxIdleTime,
+            @Value("${restClient.movieInfo.pool.maxLifeTime:5m}") Duration maxLifeTime,
+            @Value("${restClient.movieInfo.pool.evictionInterval:30s}") Duration evictionInterval) {
+        return connectionProvider("movieInfo", maxConnections, pendingAcquireMaxCount, pendingAcquireTimeout,
+                maxIdleTime, maxLifeTime, evictionInterval);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(
+            @Value("${restClient.reviews.pool.maxConnections:100}") int maxConnections,
+            @Value("${restClient.reviews.pool.pendingAcquireMaxCount:500}") int pendingAcquireMaxCount,
+            @Value("${restClient.reviews.pool.pendingAcquireTimeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${restClient.reviews.pool.maxIdleTime:30s}") Duration maxIdleTime,
+            @Value("${restClient.reviews.pool.maxLifeTime:5m}") Duration maxLifeTime,
+            @Value("${restClient.reviews.pool.evictionInterval:30s}") Duration evictionInterval) {
+        return connectionProvider("reviews", maxConnections, pendingAcquireMaxCount, pendingAcquireTimeout,
+                maxIdleTime, maxLifeTime, evictionInterval);
+    }
+
     /**
      * Injected as a bean to the whole spring context
      */
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
+    public WebClient movieInfoWebClient(WebClient.Builder builder,
+                                        @Qualifier("movieInfoConnectionProvider") ConnectionProvider connectionProvider,
+                                        @Value("${restClient.movieInfo.connectTimeout:1s}") Duration connectTimeout,
+                                        @Value("${restClient.movieInfo.h2c:false}") boolean h2c,
+                                        @Value("${restClient.movieInfo.smile:true}") boolean smile,
+                                        @Value("${restClient.movieInfo.compression:true}") boolean compression) {
+        return webClient(builder, connectionProvider, connectTimeout, h2c, smile, compression);
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder,
+                                      @Qualifier("reviewsConnectionProvider") ConnectionProvider connectionProvider,
+                                      @Value("${restClient.reviews.connectTimeout:1s}") Duration connectTimeout,
+                                      @Value("${restClient.reviews.h2c:false}") boolean h2c,
+                                      @Value("${restClient.reviews.smile:true}") boolean smile,
+                                      @Value("${restClient.reviews.compression:true}") boolean compression) {
+        return webClient(builder, connectionProvider, connectTimeout, h2c, smile, compression);
+    }
+
+    private ConnectionProvider connectionProvider(String name, int maxConnections, int pendingAcquireMaxCount,
+                                                  Duration pendingAcquireTimeout, Duration maxIdleTime,
+                                                  Duration maxLifeTime, Duration evictionInterval) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                // callers waiting for a connection, past that they fail right away instead of queueing up
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // below the idle timeout of the server, a connection is never reused just as the other side closes it
+                .maxIdleTime(maxIdleTime)
+                // recycled now and then, so new instances behind the same host get their share of the traffic
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictionInterval)
+                // the most recently released connection is the one that is still warm
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider,
+                                Duration connectTimeout, boolean h2c, boolean smile, boolean compression) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                // h2c upgrade, falls back to HTTP/1.1 when the server does not take it
+                .protocol(h2c ? new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2C} : new HttpProtocol[]{HttpProtocol.HTTP11})
+                // sends Accept-Encoding: gzip and inflates what comes back compressed
+                .compress(compression);
+        if (smile) {
+            // the Accept header of a single call, like the NDJSON stream, replaces this one
+            builder.defaultHeader(HttpHeaders.ACCEPT, APPLICATION_SMILE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+        }
         /**
          * automatically create the webclient instance for our application
          */
-        return builder.build();
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(forwardRequestDeadline())
+                .build();
+    }
+
+    /**
+     * Every outgoing call tells the downstream service how much time is left, so it can drop the work once the caller is gone.
+     * Computed per attempt, a retry forwards what is left at the time it is sent.
+     */
+    private ExchangeFilterFunction forwardRequestDeadline() {
+        return (request, next) -> Mono.deferContextual(contextView -> next.exchange(RequestDeadline.from(contextView)
+                .map(deadline -> ClientRequest.from(request)
+                        .header(RequestDeadline.HEADER, String.valueOf(deadline.remaining().toMillis()))
+                        .build())
+                .orElse(request)));
     }
 }
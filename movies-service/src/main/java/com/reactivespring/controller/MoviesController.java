@@ -4,14 +4,27 @@ import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.BulkheadFullException;
+import com.reactivespring.exception.CallNotPermittedException;
+import com.reactivespring.util.RequestDeadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 /**
  * To run this, run the following first
  * 1. MongoDB
@@ -24,17 +37,47 @@ import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/v1/movies")
+@Slf4j
 public class MoviesController {
 
     private MoviesInfoRestClient moviesInfoRestClient;
     private ReviewsRestClient reviewsRestClient;
 
+    // movie info and reviews asked for at the same time, see retrieveMovieById
+    @Value("${movies.retrieveById.concurrent:true}")
+    private boolean concurrentFanOut;
+
+    // reviews lookups in flight at the same time on one enriched stream
+    @Value("${movies.stream.enrichConcurrency:16}")
+    private int streamEnrichConcurrency;
+
+    // a stream has no end, each reviews lookup gets its own deadline instead of the one of the request
+    @Value("${request.timeout.default:5s}")
+    private Duration streamEnrichTimeout;
+
     public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
     }
+    /**
+     * ?reviews=summary embeds the rating summary instead of every review
+     *
+     * With movies.retrieveById.concurrent both downstream calls start at once, the response takes as long as the slower one
+     * instead of both added up. Without it the reviews are only asked for once the movie info is back.
+     */
     @GetMapping("/{movieId}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("movieId") String movieId) {
+    public Mono<Movie> retrieveMovieById(@PathVariable("movieId") String movieId,
+                                         @RequestParam(value = "reviews", required = false) String reviewsMode) {
+        if (concurrentFanOut) {
+            return retrieveMovieByIdConcurrently(movieId, "summary".equals(reviewsMode));
+        }
+        if ("summary".equals(reviewsMode)) {
+            return moviesInfoRestClient.retrieveMovieInfo(movieId)
+                    .flatMap(movieInfo -> reviewsRestClient.retrieveRatingSummary(movieId)
+                            .map(ratingSummary -> new Movie(movieInfo, null, ratingSummary))
+                            .onErrorResume(MoviesController::isReviewsUnavailable,
+                                    ex -> Mono.just(new Movie(movieInfo, null, null))));
+        }
         return moviesInfoRestClient.retrieveMovieInfo(movieId)
                 /**
                  * reviewsRestClient.retrieveReviews returns a Flux<Movie>. SInce we are dealing of transformation and  returning a reactive type
@@ -46,13 +89,111 @@ public class MoviesController {
                              * Returns a Mono of list of reviews
                              */
                             .collectList();
-                    return reviewsListMono.map(reviews -> new Movie(movieInfo, reviews));
+                    return reviewsListMono.map(reviews -> new Movie(movieInfo, reviews))
+                            // the movie info alone, the reviewList is left out so clients can tell it apart from "no reviews"
+                            .onErrorResume(MoviesController::isReviewsUnavailable,
+                                    ex -> Mono.just(new Movie(movieInfo, null)));
                 });
     }
 
+    /**
+     * zip subscribes to both calls right away. The first error cancels the other call,
+     * a 404 MoviesInfoClientException from movies-info-service stops the reviews call and is returned as before.
+     */
+    private Mono<Movie> retrieveMovieByIdConcurrently(String movieId, boolean summary) {
+        var movieInfoMono = moviesInfoRestClient.retrieveMovieInfo(movieId);
+        if (summary) {
+            var ratingSummaryMono = reviewsRestClient.retrieveRatingSummary(movieId)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .onErrorResume(MoviesController::isReviewsUnavailable, ex -> Mono.just(Optional.empty()));
+            return Mono.zip(movieInfoMono, ratingSummaryMono)
+                    .map(tuple -> new Movie(tuple.getT1(), null, tuple.getT2().orElse(null)));
+        }
+        var reviewsMono = reviewsRestClient.retrieveReviews(movieId)
+                .collectList()
+                .map(Optional::of)
+                // the movie info alone, the reviewList is left out so clients can tell it apart from "no reviews"
+                .onErrorResume(MoviesController::isReviewsUnavailable, ex -> Mono.just(Optional.empty()));
+        return Mono.zip(movieInfoMono, reviewsMono)
+                .map(tuple -> new Movie(tuple.getT1(), tuple.getT2().orElse(null)));
+    }
+
+    /**
+     * Reviews are optional, when their circuit is open or their bulkhead is full the movie is served without them
+     */
+    private static boolean isReviewsUnavailable(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    /**
+     * Multi get, e.g. /v1/movies?ids=1,2,3
+     * Costs two upstream calls no matter how many ids are asked for, one bulk MovieInfo call and one bulk reviews call.
+     */
+    @GetMapping
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+        var distinctIds = movieIds.stream().distinct().collect(Collectors.toList());
+        var movieInfosMono = moviesInfoRestClient.retrieveMovieInfos(distinctIds).collectList();
+        var reviewsByMovieIdMono = reviewsRestClient.retrieveReviews(distinctIds)
+                .collectMultimap(review -> String.valueOf(review.getMovieInfoId()))
+                .map(Optional::of)
+                // reviews unavailable, the movies are served without their reviewList
+                .onErrorResume(MoviesController::isReviewsUnavailable, ex -> Mono.just(Optional.empty()));
+
+        // both calls are subscribed at the same time, the join happens in memory once both are back
+        return Mono.zip(movieInfosMono, reviewsByMovieIdMono)
+                .flatMapIterable(tuple -> {
+                    var reviewsByMovieId = tuple.getT2();
+                    return tuple.getT1().stream()
+                            .map(movieInfo -> {
+                                List<Review> reviews = reviewsByMovieId
+                                        .map(byMovieId -> new ArrayList<>(byMovieId.getOrDefault(movieInfo.getMovieInfoId(), List.of())))
+                                        .orElse(null);
+                                return new Movie(movieInfo, reviews);
+                            })
+                            .collect(Collectors.toList());
+                });
+    }
 
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> retrieveMovieInfoStream() {
             return moviesInfoRestClient.retrieveMovieInfoStream();
     }
+
+    /**
+     * The MovieInfo stream with the reviews of every movie, e.g. /v1/movies/stream?reviews=all
+     * ?reviews=summary embeds the rating summary instead, &ordered=true keeps the order of the MovieInfo stream,
+     * otherwise a movie is sent as soon as its reviews are back.
+     *
+     * Driven by the demand of the client: at most movies.stream.enrichConcurrency movies are requested from the
+     * MovieInfo stream and looked up at a time, a slow client slows the lookups down instead of piling movies up in memory.
+     */
+    @GetMapping(value = "/stream", params = "reviews", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMovieStream(@RequestParam("reviews") String reviewsMode,
+                                           @RequestParam(value = "ordered", defaultValue = "false") boolean ordered) {
+        var summary = "summary".equals(reviewsMode);
+        var movieInfoStream = moviesInfoRestClient.retrieveMovieInfoStream();
+        // prefetch 1, a movie is only asked for once a lookup slot is free
+        return ordered
+                ? movieInfoStream.flatMapSequential(movieInfo -> enrichStreamed(movieInfo, summary), streamEnrichConcurrency, 1)
+                : movieInfoStream.flatMap(movieInfo -> enrichStreamed(movieInfo, summary), streamEnrichConcurrency, 1);
+    }
+
+    private Mono<Movie> enrichStreamed(MovieInfo movieInfo, boolean summary) {
+        var movieId = movieInfo.getMovieInfoId();
+        var movie = summary
+                ? reviewsRestClient.retrieveRatingSummary(movieId)
+                        .map(ratingSummary -> new Movie(movieInfo, null, ratingSummary))
+                        .defaultIfEmpty(new Movie(movieInfo, null, null))
+                : reviewsRestClient.retrieveReviews(movieId)
+                        .collectList()
+                        .map(reviews -> new Movie(movieInfo, reviews));
+        return movie
+                // one failed lookup must not end the stream for every other movie, this one goes without its reviews
+                .onErrorResume(ex -> {
+                    log.warn("Reviews of movie {} not available on the stream : {}", movieId, ex.getMessage());
+                    return Mono.just(new Movie(movieInfo, null, null));
+                })
+                .contextWrite(RequestDeadline.after(streamEnrichTimeout).into());
+    }
 }
@@ -0,0 +1,44 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.ResilienceState;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Current circuit breaker and bulkhead state of every downstream service
+ */
+@RestController
+@RequestMapping("/v1/resilience")
+public class ResilienceController {
+
+    private CircuitBreaker movieInfoCircuitBreaker;
+    private CircuitBreaker reviewsCircuitBreaker;
+    private Bulkhead movieInfoBulkhead;
+    private Bulkhead reviewsBulkhead;
+
+    public ResilienceController(@Qualifier("movieInfoCircuitBreaker") CircuitBreaker movieInfoCircuitBreaker,
+                                @Qualifier("reviewsCircuitBreaker") CircuitBreaker reviewsCircuitBreaker,
+                                @Qualifier("movieInfoBulkhead") Bulkhead movieInfoBulkhead,
+                                @Qualifier("reviewsBulkhead") Bulkhead reviewsBulkhead) {
+        this.movieInfoCircuitBreaker = movieInfoCircuitBreaker;
+        this.reviewsCircuitBreaker = reviewsCircuitBreaker;
+        this.movieInfoBulkhead = movieInfoBulkhead;
+        this.reviewsBulkhead = reviewsBulkhead;
+    }
+
+    @GetMapping
+    public Flux<ResilienceState> retrieveResilienceStates() {
+        return Flux.just(state(movieInfoCircuitBreaker, movieInfoBulkhead), state(reviewsCircuitBreaker, reviewsBulkhead));
+    }
+
+    private ResilienceState state(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        return new ResilienceState(circuitBreaker.getName(), circuitBreaker.getState().name(),
+                circuitBreaker.getFailureRate(), circuitBreaker.getSlowCallRate(), circuitBreaker.getBufferedCalls(),
+                bulkhead.getAvailableConcurrentCalls(), bulkhead.getMaxConcurrentCalls());
+    }
+}
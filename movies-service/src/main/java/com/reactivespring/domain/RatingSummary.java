@@ -0,0 +1,22 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double mean;
+    private Double min;
+    private Double max;
+    // ratings per whole point, e.g. 8 -> number of ratings from 8.0 up to 8.9
+    private Map<Integer, Long> histogram;
+}
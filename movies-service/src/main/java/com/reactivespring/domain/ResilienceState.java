@@ -0,0 +1,22 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Circuit breaker and bulkhead state of one downstream service, failure and slow call rates are -1 until enough calls are recorded
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResilienceState {
+
+    private String name;
+    private String circuitBreakerState;
+    private float failureRate;
+    private float slowCallRate;
+    private int bufferedCalls;
+    private int availableConcurrentCalls;
+    private int maxConcurrentCalls;
+}
@@ -0,0 +1,13 @@
+package com.reactivespring.exception;
+
+/**
+ * Too many calls to the downstream service are already in flight, the call was not even attempted
+ */
+public class BulkheadFullException extends RuntimeException {
+    private String message;
+
+    public BulkheadFullException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
@@ -0,0 +1,13 @@
+package com.reactivespring.exception;
+
+/**
+ * The circuit breaker of the downstream service is open, the call was not even attempted
+ */
+public class CallNotPermittedException extends RuntimeException {
+    private String message;
+
+    public CallNotPermittedException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
@@ -1,6 +1,8 @@
 package com.reactivespring.globalErrorHandler;
 
 
+import com.reactivespring.exception.BulkheadFullException;
+import com.reactivespring.exception.CallNotPermittedException;
 import com.reactivespring.exception.MoviesInfoClientException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -8,6 +10,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.TimeoutException;
+
 @ControllerAdvice
 @Slf4j
 public class GlobalErrorHandler {
@@ -21,6 +25,22 @@ public class GlobalErrorHandler {
         log.error("Exception Caught in handleClientException : {}", exception.getMessage());
         return ResponseEntity.status(exception.getStatusCode()).body(exception.getMessage());
     }
+    /**
+     * The downstream service was not even called, its circuit is open or its bulkhead is full
+     */
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<String> handleUnavailableException(RuntimeException exception) {
+        log.error("Exception Caught in handleUnavailableException : {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(exception.getMessage());
+    }
+    /**
+     * The request deadline was reached before the downstream services answered, see RequestDeadline
+     */
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<String> handleTimeoutException(TimeoutException exception) {
+        log.error("Exception Caught in handleTimeoutException : {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(exception.getMessage());
+    }
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException exception) {
         log.error("Exception Caught in handleServerException : {}", exception.getMessage());
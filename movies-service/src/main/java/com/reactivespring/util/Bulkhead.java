@@ -0,0 +1,64 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.BulkheadFullException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of in-flight calls to one downstream service.
+ * A call over the limit fails right away with BulkheadFullException instead of queueing,
+ * so a slow service can not hold every connection and pending exchange of the app.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public Bulkhead(String name, int maxConcurrentCalls) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return Mono.defer(() -> tryAcquire()
+                ? call.doFinally(signalType -> inFlight.decrementAndGet())
+                : Mono.error(full()));
+    }
+
+    public <T> Flux<T> apply(Flux<T> call) {
+        return Flux.defer(() -> tryAcquire()
+                ? call.doFinally(signalType -> inFlight.decrementAndGet())
+                : Flux.error(full()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return maxConcurrentCalls - inFlight.get();
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= maxConcurrentCalls) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private BulkheadFullException full() {
+        return new BulkheadFullException("Bulkhead " + name + " is full, " + maxConcurrentCalls + " calls in flight");
+    }
+}
@@ -0,0 +1,266 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Non blocking circuit breaker over the last slidingWindowSize calls of one downstream service.
+ *
+ * - CLOSED: calls go through. Once minimumNumberOfCalls are recorded, the circuit opens when the failure rate
+ *   or the slow call rate (calls longer than slowCallDuration) reaches its threshold
+ * - OPEN: calls fail right away with CallNotPermittedException, for waitDurationInOpenState
+ * - HALF_OPEN: permittedCallsInHalfOpenState trial calls go through, their rates decide between CLOSED and OPEN again
+ *
+ * Only the errors matching recordFailure are failures, e.g. a 404 is an answer of a healthy service.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumNumberOfCalls;
+    private final long waitInOpenNanos;
+    private final int permittedCallsInHalfOpenState;
+    private final Predicate<Throwable> recordFailure;
+    private final LongSupplier nanoClock;
+
+    // ring buffer of the last calls, in CLOSED state
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private int next;
+    private int bufferedCalls;
+    private int failedCalls;
+    private int slowCallCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    // HALF_OPEN bookkeeping
+    private int halfOpenPermits;
+    private int halfOpenCalls;
+    private int halfOpenFailures;
+    private int halfOpenSlowCalls;
+
+    public CircuitBreaker(String name, float failureRateThreshold, float slowCallRateThreshold, Duration slowCallDuration,
+                          int slidingWindowSize, int minimumNumberOfCalls, Duration waitDurationInOpenState,
+                          int permittedCallsInHalfOpenState, Predicate<Throwable> recordFailure) {
+        this(name, failureRateThreshold, slowCallRateThreshold, slowCallDuration, slidingWindowSize, minimumNumberOfCalls,
+                waitDurationInOpenState, permittedCallsInHalfOpenState, recordFailure, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, float failureRateThreshold, float slowCallRateThreshold, Duration slowCallDuration,
+                   int slidingWindowSize, int minimumNumberOfCalls, Duration waitDurationInOpenState,
+                   int permittedCallsInHalfOpenState, Predicate<Throwable> recordFailure, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.failures = new boolean[slidingWindowSize];
+        this.slowCalls = new boolean[slidingWindowSize];
+        this.minimumNumberOfCalls = Math.min(minimumNumberOfCalls, slidingWindowSize);
+        this.waitInOpenNanos = waitDurationInOpenState.toNanos();
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        this.recordFailure = recordFailure;
+        this.nanoClock = nanoClock;
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(notPermitted());
+            }
+            var start = nanoClock.getAsLong();
+            // first terminal signal wins, a cancel after the value must not be counted again
+            var recorded = new AtomicBoolean();
+            return call
+                    .doOnSuccess(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(start, null);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(start, ex);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            releasePermission();
+                        }
+                    });
+        });
+    }
+
+    public <T> Flux<T> apply(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Flux.error(notPermitted());
+            }
+            var start = nanoClock.getAsLong();
+            var recorded = new AtomicBoolean();
+            return call
+                    .doOnComplete(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(start, null);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(start, ex);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            releasePermission();
+                        }
+                    });
+        });
+    }
+
+    public synchronized State getState() {
+        // OPEN turns into HALF_OPEN lazily, on the next call, report it the same way
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= waitInOpenNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Percentage of failed calls in the window, -1 until minimumNumberOfCalls are recorded
+     */
+    public synchronized float getFailureRate() {
+        return bufferedCalls < minimumNumberOfCalls ? -1 : failedCalls * 100f / bufferedCalls;
+    }
+
+    /**
+     * Percentage of slow calls in the window, -1 until minimumNumberOfCalls are recorded
+     */
+    public synchronized float getSlowCallRate() {
+        return bufferedCalls < minimumNumberOfCalls ? -1 : slowCallCount * 100f / bufferedCalls;
+    }
+
+    public synchronized int getBufferedCalls() {
+        return bufferedCalls;
+    }
+
+    /**
+     * Opens the circuit by hand, e.g. to take a misbehaving service out of the way
+     */
+    public synchronized void transitionToOpenState() {
+        transitionTo(State.OPEN);
+    }
+
+    /**
+     * Back to CLOSED with an empty window
+     */
+    public synchronized void reset() {
+        transitionTo(State.CLOSED);
+    }
+
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < waitInOpenNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= permittedCallsInHalfOpenState) {
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    private synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    private synchronized void onResult(long start, Throwable ex) {
+        var failed = ex != null && recordFailure.test(ex);
+        var slow = nanoClock.getAsLong() - start >= slowCallNanos;
+        switch (state) {
+            case CLOSED:
+                record(failed, slow);
+                if (bufferedCalls >= minimumNumberOfCalls
+                        && (failedCalls * 100f / bufferedCalls >= failureRateThreshold
+                        || slowCallCount * 100f / bufferedCalls >= slowCallRateThreshold)) {
+                    transitionTo(State.OPEN);
+                }
+                break;
+            case HALF_OPEN:
+                halfOpenCalls++;
+                halfOpenFailures += failed ? 1 : 0;
+                halfOpenSlowCalls += slow ? 1 : 0;
+                if (halfOpenCalls >= permittedCallsInHalfOpenState) {
+                    var reopen = halfOpenFailures * 100f / halfOpenCalls >= failureRateThreshold
+                            || halfOpenSlowCalls * 100f / halfOpenCalls >= slowCallRateThreshold;
+                    transitionTo(reopen ? State.OPEN : State.CLOSED);
+                }
+                break;
+            default:
+                // a call started before the circuit opened, its outcome no longer matters
+                break;
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (bufferedCalls == failures.length) {
+            // the oldest call leaves the window
+            failedCalls -= failures[next] ? 1 : 0;
+            slowCallCount -= slowCalls[next] ? 1 : 0;
+        } else {
+            bufferedCalls++;
+        }
+        failures[next] = failed;
+        slowCalls[next] = slow;
+        failedCalls += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    private void transitionTo(State newState) {
+        if (state != newState) {
+            log.warn("Circuit breaker {} : {} -> {}", name, state, newState);
+        }
+        state = newState;
+        next = 0;
+        bufferedCalls = 0;
+        failedCalls = 0;
+        slowCallCount = 0;
+        halfOpenPermits = 0;
+        halfOpenCalls = 0;
+        halfOpenFailures = 0;
+        halfOpenSlowCalls = 0;
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = false;
+            slowCalls[i] = false;
+        }
+        if (newState == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    private CallNotPermittedException notPermitted() {
+        return new CallNotPermittedException("Circuit breaker " + name + " is open, the call was not attempted");
+    }
+}
@@ -0,0 +1,16 @@
+package com.reactivespring.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A value along with the ETag it was served with, sent back as If-None-Match to revalidate it.
+ * The ETag is null when the other side did not send one.
+ */
+@Data
+@AllArgsConstructor
+public class ETagged<T> {
+
+    private T value;
+    private String eTag;
+}
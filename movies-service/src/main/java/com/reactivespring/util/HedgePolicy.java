@@ -0,0 +1,85 @@
+package com.reactivespring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedged requests for one client: when the call has not answered after the hedge delay,
+ * the same call is sent a second time, the first value wins and the other one is cancelled.
+ * An error does not win the race: a first attempt failing fast still waits for its hedge,
+ * the call only fails when no attempt answers, with the error of the first one that failed.
+ *
+ * - the hedge delay is fixed, or the observed latency percentile (p95 by default) of the first attempts
+ * - every hedge has to be granted by the hedge budget, so during an outage the load is not doubled
+ *
+ * Only for idempotent calls. Disabled, apply returns the call as is.
+ */
+@Slf4j
+public class HedgePolicy {
+
+    private final String name;
+    private final boolean enabled;
+    private final Duration fixedDelay;
+    private final Duration initialDelay;
+    private final Duration minDelay;
+    private final LatencyTracker latencyTracker;
+    private final RetryBudget hedgeBudget;
+
+    /**
+     * @param fixedDelay   zero to hedge at the observed percentile instead
+     * @param initialDelay used until the latency tracker has enough samples
+     * @param hedgeBudget  same sliding window accounting as the retries, a hedge takes the place of a retry
+     */
+    public HedgePolicy(String name, boolean enabled, Duration fixedDelay, Duration initialDelay, Duration minDelay,
+                       LatencyTracker latencyTracker, RetryBudget hedgeBudget) {
+        this.name = name;
+        this.enabled = enabled;
+        this.fixedDelay = fixedDelay;
+        this.initialDelay = initialDelay;
+        this.minDelay = minDelay;
+        this.latencyTracker = latencyTracker;
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            hedgeBudget.recordRequest();
+            var start = System.nanoTime();
+            var firstError = new AtomicReference<Throwable>();
+            // the first attempt feeds the percentile, when it loses its elapsed time is a lower bound of its latency
+            var primary = call
+                    .doOnSuccess(value -> latencyTracker.record(Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnCancel(() -> latencyTracker.record(Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnError(error -> firstError.compareAndSet(null, error));
+            var hedge = Mono.delay(hedgeDelay())
+                    .then(Mono.defer(() -> {
+                        if (!hedgeBudget.tryAcquireRetry()) {
+                            // no hedge, the first attempt is on its own
+                            return Mono.<T>empty();
+                        }
+                        log.info("{} : no answer after {}ms, hedging", name, Duration.ofNanos(System.nanoTime() - start).toMillis());
+                        return call.doOnError(error -> firstError.compareAndSet(null, error));
+                    }));
+            // firstWithValue fails with a NoSuchElementException when no attempt has a value,
+            // the callers expect the error of the call itself, like a MoviesInfoServerException to retry on
+            return Mono.firstWithValue(primary, hedge)
+                    .onErrorResume(NoSuchElementException.class, ex -> firstError.get() != null
+                            ? Mono.error(firstError.get())
+                            : Mono.empty());
+        });
+    }
+
+    Duration hedgeDelay() {
+        var delay = fixedDelay.isZero()
+                ? latencyTracker.current().orElse(initialDelay)
+                : fixedDelay;
+        return delay.compareTo(minDelay) < 0 ? minDelay : delay;
+    }
+}
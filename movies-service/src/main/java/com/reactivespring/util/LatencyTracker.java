@@ -0,0 +1,56 @@
+package com.reactivespring.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Latency percentile over the last windowSize calls of one client.
+ * The percentile is recomputed every RECOMPUTE_EVERY samples, reading it is cheap enough to do on every call.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final double percentile;
+    private final int minSamples;
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long percentileNanos = -1;
+
+    public LatencyTracker(int windowSize, double percentile, int minSamples) {
+        this.samples = new long[windowSize];
+        this.percentile = percentile;
+        this.minSamples = Math.min(minSamples, windowSize);
+    }
+
+    public synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (++sinceRecompute >= RECOMPUTE_EVERY || percentileNanos < 0) {
+            recompute();
+        }
+    }
+
+    /**
+     * Empty until minSamples calls are recorded
+     */
+    public synchronized Optional<Duration> current() {
+        return percentileNanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(percentileNanos));
+    }
+
+    private void recompute() {
+        sinceRecompute = 0;
+        if (count < minSamples) {
+            return;
+        }
+        var sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        // nearest rank
+        var rank = (int) Math.ceil(percentile * count);
+        percentileNanos = sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+}
@@ -0,0 +1,123 @@
+package com.reactivespring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, TTL based read-through cache for reactive lookups.
+ *
+ * - fresh entries (younger than ttl) are served from memory
+ * - stale entries (older than ttl, but younger than ttl + staleWhileRevalidate) are served right away
+ *   while one background call refreshes them
+ * - concurrent misses for the same key share a single upstream call, with the cache disabled as well
+ * - once maxSize is reached, the least recently used entry is evicted
+ * - the loader can be handed the value it is replacing, to revalidate it instead of fetching it again
+ */
+@Slf4j
+public class ReactiveCache<K, V> {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<K, Entry<V>> entries;
+    private final SingleFlight<K, V> singleFlight;
+
+    public ReactiveCache(boolean enabled, int maxSize, Duration ttl, Duration staleWhileRevalidate) {
+        this(enabled, maxSize, ttl, staleWhileRevalidate, new SingleFlight<>(), System::nanoTime);
+    }
+
+    /**
+     * A load shared by several callers runs with the latest of their deadlines, never more than loadTimeout,
+     * a background refresh with loadTimeout. See SingleFlight
+     */
+    public ReactiveCache(boolean enabled, int maxSize, Duration ttl, Duration staleWhileRevalidate, Duration loadTimeout) {
+        this(enabled, maxSize, ttl, staleWhileRevalidate, new SingleFlight<>(loadTimeout), System::nanoTime);
+    }
+
+    ReactiveCache(boolean enabled, int maxSize, Duration ttl, Duration staleWhileRevalidate, LongSupplier nanoClock) {
+        this(enabled, maxSize, ttl, staleWhileRevalidate, new SingleFlight<>(), nanoClock);
+    }
+
+    private ReactiveCache(boolean enabled, int maxSize, Duration ttl, Duration staleWhileRevalidate,
+                          SingleFlight<K, V> singleFlight, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.singleFlight = singleFlight;
+        this.ttlNanos = ttl.toNanos();
+        this.staleNanos = staleWhileRevalidate.toNanos();
+        this.nanoClock = nanoClock;
+        // access ordered LinkedHashMap gives us the LRU eviction for free
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    public Mono<V> get(K key, Function<K, Mono<V>> loader) {
+        return get(key, (k, previous) -> loader.apply(k));
+    }
+
+    /**
+     * Same as get(key, loader), the loader is also given the stale or expired value it refreshes, null on a miss
+     */
+    public Mono<V> get(K key, BiFunction<K, V, Mono<V>> loader) {
+        if (!enabled) {
+            // nothing is kept, concurrent calls for the same key still share one upstream call
+            return singleFlight.execute(key, k -> loader.apply(k, null));
+        }
+        return Mono.defer(() -> {
+            var entry = entries.get(key);
+            if (entry != null) {
+                var age = nanoClock.getAsLong() - entry.loadedAt;
+                if (age < ttlNanos) {
+                    return Mono.just(entry.value);
+                }
+                if (age < ttlNanos + staleNanos) {
+                    // serve the stale value now, the caller does not wait for the refresh
+                    load(key, entry.value, loader).subscribe(
+                            value -> { },
+                            ex -> log.warn("Background refresh failed for key {} : {}", key, ex.getMessage()));
+                    return Mono.just(entry.value);
+                }
+            }
+            return load(key, entry != null ? entry.value : null, loader);
+        });
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * A burst of misses for the same key costs one upstream call, see SingleFlight
+     */
+    private Mono<V> load(K key, V previous, BiFunction<K, V, Mono<V>> loader) {
+        return singleFlight.execute(key, k -> loader.apply(k, previous)
+                .doOnNext(value -> entries.put(k, new Entry<>(value, nanoClock.getAsLong()))));
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
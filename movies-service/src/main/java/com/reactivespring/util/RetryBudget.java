@@ -0,0 +1,81 @@
+package com.reactivespring.util;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the retries of one client to a share of its requests over a sliding window,
+ * e.g. ratio 0.1 allows one retry for every 10 requests of the last window.
+ *
+ * minRetriesPerSecond keeps a low traffic client able to retry at all,
+ * above that a brownout upstream sees at most (1 + ratio) times the normal load instead of a retry storm.
+ */
+public class RetryBudget {
+
+    private static final int BUCKETS = 10;
+
+    private final double ratio;
+    private final long minRetries;
+    private final long bucketNanos;
+    private final LongSupplier nanoClock;
+
+    // ring of buckets, bucketEpochs tells which slice of time a bucket currently counts
+    private final long[] bucketEpochs = new long[BUCKETS];
+    private final long[] requests = new long[BUCKETS];
+    private final long[] retries = new long[BUCKETS];
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, Duration window) {
+        this(ratio, minRetriesPerSecond, window, System::nanoTime);
+    }
+
+    RetryBudget(double ratio, int minRetriesPerSecond, Duration window, LongSupplier nanoClock) {
+        this.ratio = ratio;
+        this.minRetries = (long) minRetriesPerSecond * Math.max(1, window.toSeconds());
+        this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+        this.nanoClock = nanoClock;
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketEpochs[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public synchronized void recordRequest() {
+        requests[currentBucket()]++;
+    }
+
+    /**
+     * true, and the retry is counted, when the budget still allows one
+     */
+    public synchronized boolean tryAcquireRetry() {
+        var current = currentBucket();
+        long windowRequests = 0;
+        long windowRetries = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            windowRequests += requests[i];
+            windowRetries += retries[i];
+        }
+        if (windowRetries >= Math.max(minRetries, (long) (windowRequests * ratio))) {
+            return false;
+        }
+        retries[current]++;
+        return true;
+    }
+
+    private int currentBucket() {
+        var epoch = Math.floorDiv(nanoClock.getAsLong(), bucketNanos);
+        // buckets older than the window are reset before they are counted again
+        for (int i = 0; i < BUCKETS; i++) {
+            if (bucketEpochs[i] != Long.MIN_VALUE && epoch - bucketEpochs[i] >= BUCKETS) {
+                bucketEpochs[i] = Long.MIN_VALUE;
+                requests[i] = 0;
+                retries[i] = 0;
+            }
+        }
+        var index = (int) Math.floorMod(epoch, (long) BUCKETS);
+        if (bucketEpochs[index] != epoch) {
+            bucketEpochs[index] = epoch;
+            requests[index] = 0;
+            retries[index] = 0;
+        }
+        return index;
+    }
+}
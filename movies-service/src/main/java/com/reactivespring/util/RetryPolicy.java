@@ -0,0 +1,73 @@
+package com.reactivespring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Retry strategy of one rest client, use it with retryWhen(policy).
+ *
+ * - exponential backoff with full jitter: the n-th retry waits a random time between 0 and min(maxBackoff, initialBackoff * 2^n),
+ *   so the clients of a failing upstream do not come back all at the same time
+ * - every subscription counts as one request of the RetryBudget, every retry has to be granted by it
+ * - a RequestDeadline in the Reactor Context stops the retries once the backoff would not fit in the remaining time
+ *
+ * When a retry is not allowed, the last failure is propagated as is.
+ */
+@Slf4j
+public class RetryPolicy extends Retry {
+
+    private final String name;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final RetryBudget retryBudget;
+    private final Predicate<Throwable> retryable;
+
+    public RetryPolicy(String name, int maxRetries, Duration initialBackoff, Duration maxBackoff,
+                       RetryBudget retryBudget, Predicate<Throwable> retryable) {
+        this.name = name;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retryBudget = retryBudget;
+        this.retryable = retryable;
+    }
+
+    @Override
+    public Publisher<?> generateCompanion(Flux<RetrySignal> retrySignals) {
+        // called once per subscription of the retried publisher, the retries themselves resubscribe further up
+        retryBudget.recordRequest();
+        return Flux.deferContextual(contextView -> retrySignals.concatMap(retrySignal -> {
+            var failure = retrySignal.failure();
+            var attempt = retrySignal.totalRetries();
+            if (!retryable.test(failure) || attempt >= maxRetries) {
+                return Mono.error(failure);
+            }
+            var backoff = backoff(attempt);
+            var deadline = RequestDeadline.from(contextView);
+            if (deadline.isPresent() && deadline.get().remaining().compareTo(backoff) <= 0) {
+                log.info("{} : not retrying, the caller's deadline is too close", name);
+                return Mono.error(failure);
+            }
+            if (!retryBudget.tryAcquireRetry()) {
+                log.warn("{} : retry budget exhausted, not retrying {}", name, failure.getMessage());
+                return Mono.error(failure);
+            }
+            log.info("{} : retry {} in {}ms after {}", name, attempt + 1, backoff.toMillis(), failure.getMessage());
+            return Mono.delay(backoff).thenReturn(attempt);
+        }));
+    }
+
+    Duration backoff(long attempt) {
+        // in double, initialBackoff * 2^attempt would overflow a long after a few dozen attempts
+        var cap = (long) Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() * Math.pow(2, attempt));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+}
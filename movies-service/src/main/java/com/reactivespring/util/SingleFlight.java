@@ -0,0 +1,66 @@
+package com.reactivespring.util;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent calls for the same key into one in-flight call.
+ * Every subscriber that arrives while the call is running shares its result,
+ * the key is released as soon as the call terminates so the next caller starts a fresh one.
+ *
+ * With a maxCallTimeout, the call runs with a RequestDeadline of its own: the latest deadline of the callers joined
+ * on it, never more than maxCallTimeout. A caller joining late pushes it back, the one that started the call does not
+ * cut it short for the others. Every caller still has to enforce its own deadline on its subscription.
+ *
+ * For a Flux, collect it to a List first and flatten it again on the caller side,
+ * that way a late subscriber still sees every element.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxCallTimeout;
+
+    public SingleFlight() {
+        this(null);
+    }
+
+    public SingleFlight(Duration maxCallTimeout) {
+        this.maxCallTimeout = maxCallTimeout;
+    }
+
+    public Mono<V> execute(K key, Function<K, Mono<V>> call) {
+        return Mono.deferContextual(contextView -> {
+            var flight = inFlight.computeIfAbsent(key, k -> new Flight<>(maxCallTimeout != null
+                    ? RequestDeadline.shared(maxCallTimeout) : null, k, call, inFlight));
+            if (flight.deadline != null) {
+                // before subscribing, the caller that starts the call has its deadline in place when it goes out
+                flight.deadline.join(RequestDeadline.from(contextView));
+            }
+            return flight.result;
+        });
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static class Flight<V> {
+        private final RequestDeadline deadline;
+        private final Mono<V> result;
+
+        private <K> Flight(RequestDeadline deadline, K key, Function<K, Mono<V>> call, Map<K, Flight<V>> inFlight) {
+            this.deadline = deadline;
+            var shared = call.apply(key);
+            if (deadline != null) {
+                shared = shared.contextWrite(deadline.into());
+            }
+            this.result = shared
+                    .doFinally(signalType -> inFlight.remove(key, this))
+                    .cache();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.reactivespring.controller;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Objects;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The movie info cache switched on, with a TTL short enough to see its entries expire and get revalidated
+ * with the ETag they were stored with.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 8084)
+@TestPropertySource(
+        properties = {
+                "restClient.movieInfoUrl=http://localhost:8084/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                "restClient.movieInfoCache.enabled=true",
+                "restClient.movieInfoCache.ttl=300ms",
+                // an expired entry is revalidated while the caller waits, no stale value served in between
+                "restClient.movieInfoCache.staleWhileRevalidate=0s",
+                "wiremock.server.httpsPort=-1"
+        }
+)
+public class MoviesControllerCacheIntgTest {
+
+    static final String MOVIE_INFO_URL = "/v1/movieinfos/abc";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+    }
+
+    @Test
+    void retrieveMovieById_revalidatesWithETag() throws Exception {
+        stubFor(WireMock.get(urlEqualTo(MOVIE_INFO_URL))
+                .willReturn(movieInfo("\"v1\"", "Batman Begins")));
+
+        assertEquals("Batman Begins", movieName());
+        // fresh, served from the cache
+        assertEquals("Batman Begins", movieName());
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFO_URL))
+                .withoutHeader("If-None-Match"));
+
+        // expired, revalidated with the ETag it was stored with: 304, the cached movie info is still current
+        Thread.sleep(400);
+        stubFor(WireMock.get(urlEqualTo(MOVIE_INFO_URL))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"v1\"")));
+
+        assertEquals("Batman Begins", movieName());
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFO_URL))
+                .withHeader("If-None-Match", equalTo("\"v1\"")));
+
+        // expired again, the movie info changed in the meantime: the 200 replaces the entry and its ETag
+        Thread.sleep(400);
+        stubFor(WireMock.get(urlEqualTo(MOVIE_INFO_URL))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(movieInfo("\"v2\"", "Batman Begins (Director's Cut)")));
+
+        assertEquals("Batman Begins (Director's Cut)", movieName());
+
+        Thread.sleep(400);
+        stubFor(WireMock.get(urlEqualTo(MOVIE_INFO_URL))
+                .withHeader("If-None-Match", equalTo("\"v2\""))
+                .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"v2\"")));
+
+        assertEquals("Batman Begins (Director's Cut)", movieName());
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFO_URL))
+                .withHeader("If-None-Match", equalTo("\"v2\"")));
+        WireMock.verify(4, getRequestedFor(urlEqualTo(MOVIE_INFO_URL)));
+    }
+
+    private String movieName() {
+        var movie = webTestClient.get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .returnResult()
+                .getResponseBody();
+        return Objects.requireNonNull(movie).getMovieInfo().getName();
+    }
+
+    private static ResponseDefinitionBuilder movieInfo(String eTag, String name) {
+        return aResponse()
+                .withHeader("Content-Type", "application/json")
+                .withHeader("ETag", eTag)
+                .withBody("{\"movieInfoId\":\"abc\",\"name\":\"" + name + "\",\"year\":2005,"
+                        + "\"cast\":[\"Christian Bale\",\"Michael Cane\"],\"release_date\":\"2005-06-15\"}");
+    }
+}
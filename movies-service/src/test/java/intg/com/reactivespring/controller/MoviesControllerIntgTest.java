@@ -1,30 +1,55 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.ResilienceState;
+import com.reactivespring.util.CircuitBreaker;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT) // avoid conflicting to :8080 port
 @ActiveProfiles("test") // this is important, avoid embedded mongo statup issues. should be different with your environments
 @AutoConfigureWebTestClient // we need the webtest client to interact with the endpoint
 @AutoConfigureWireMock(port = 8084) // for integration test only, spin up http server in port 8084 for the integration test to interact
+@AutoConfigureMetrics // the Prometheus registry is left out of the tests otherwise
 @TestPropertySource(
         properties = {
                 // we need to override the domain (8080 to 8084) in application.yml:5
                 "restClient.movieInfoUrl=http://localhost:8084/v1/movieinfos",
                 "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                // every test stubs the same movie id with a different response, a cached value would leak between tests
+                "restClient.movieInfoCache.enabled=false",
+                // the 5xx tests must not open the circuits for the tests that come after them
+                "restClient.movieInfo.circuitBreaker.minimumNumberOfCalls=1000",
+                "restClient.reviews.circuitBreaker.minimumNumberOfCalls=1000",
                 // prevents java.lang.IllegalStateException: No Server ALPNProcessors - WireMock
                 "wiremock.server.httpsPort=-1"
         }
@@ -34,6 +59,10 @@ public class MoviesControllerIntgTest {
         @Autowired
         WebTestClient webTestClient;
 
+        @Autowired
+        @Qualifier("reviewsCircuitBreaker")
+        CircuitBreaker reviewsCircuitBreaker;
+
         @Test
         void retrieveMovieById() {
                 // given
@@ -62,6 +91,41 @@ public class MoviesControllerIntgTest {
                                 assertEquals("Batman Begins", movie.getMovieInfo().getName());
                         });
         }
+
+        @Test
+        void retrieveMovieById_smile() throws Exception {
+                var movieId = "abc";
+                var smileMapper = SmileMapper.builder().addModule(new JavaTimeModule()).build();
+                var movieInfo = new MovieInfo(movieId, "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+                stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                        .withHeader("Accept", containing("application/x-jackson-smile"))
+                        .willReturn(aResponse()
+                                .withHeader("Content-Type", "application/x-jackson-smile")
+                                .withBody(smileMapper.writeValueAsBytes(movieInfo))));
+
+                stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")));
+
+                webTestClient.get()
+                        .uri("/v1/movies/{id}", movieId)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody(Movie.class)
+                        .consumeWith(movieEntityExchangeResult -> {
+                                var movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                                // decoded from Smile
+                                assertEquals(movieInfo, movie.getMovieInfo());
+                                // a service answering in JSON still works
+                                assertEquals(2, movie.getReviewList().size());
+                        });
+
+                // Smile first, JSON as the fallback
+                WireMock.verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                        .withHeader("Accept", equalTo("application/x-jackson-smile, application/json;q=0.9")));
+        }
+
     @Test
     void retrieveMovieById_404_MovieInfos() {
         // given
@@ -166,4 +230,410 @@ public class MoviesControllerIntgTest {
         WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
 
     }
+
+    @Test
+    void retrieveMovieById_ratingSummary() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews/summary"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("rating-summary.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}?reviews=summary", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+                    assertEquals(8.5, movie.getRatingSummary().getMean());
+                    assertEquals(2L, movie.getRatingSummary().getCount());
+                    // the summary replaces the reviews
+                    assertNull(movie.getReviewList());
+                });
+
+        // the full review list is not fetched at all
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieById_reviewsCircuitOpen() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        reviewsCircuitBreaker.transitionToOpenState();
+        try {
+            webTestClient.get()
+                    .uri("/v1/movies/{id}", movieId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(Movie.class)
+                    .consumeWith(movieEntityExchangeResult -> {
+                        var movie = movieEntityExchangeResult.getResponseBody();
+                        assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+                        // degraded, the reviews are left out
+                        assertNull(movie.getReviewList());
+                    });
+        } finally {
+            reviewsCircuitBreaker.reset();
+        }
+
+        // the open circuit kept the call from reaching movies-review-service
+        WireMock.verify(0, getRequestedFor(urlPathMatching("/v1/reviews.*")));
+    }
+
+    @Test
+    void retrieveMovieById_forwardsRequestDeadline() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .header("X-Request-Timeout", "3000")
+                .exchange()
+                .expectStatus().isOk();
+
+        // the time left, never more than what the caller gave us
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))
+                .withHeader("X-Request-Timeout", matching("[0-2]?\\d{1,3}")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader("X-Request-Timeout", matching("[0-2]?\\d{1,3}")));
+    }
+
+    @Test
+    void retrieveMovieById_sharedCallKeepsEachCallersDeadline() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1000)));
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        var impatientCaller = Mono.fromCallable(() -> webTestClient.get()
+                        .uri("/v1/movies/{id}", movieId)
+                        .header("X-Request-Timeout", "100")
+                        .exchange()
+                        .returnResult(String.class)
+                        .getStatus())
+                .subscribeOn(Schedulers.boundedElastic());
+        // joins the call started by the impatient one
+        var patientCaller = Mono.fromCallable(() -> webTestClient.get()
+                        .uri("/v1/movies/{id}", movieId)
+                        .header("X-Request-Timeout", "5000")
+                        .exchange()
+                        .returnResult(String.class)
+                        .getStatus())
+                .delaySubscription(Duration.ofMillis(50))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        var statuses = Mono.zip(impatientCaller, patientCaller).block(Duration.ofSeconds(10));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, statuses.getT1());
+        // the first caller giving up did not fail the shared call, the second one pushed its deadline back
+        assertEquals(HttpStatus.OK, statuses.getT2());
+        // sent with the time left of the caller that started it, at most 100ms
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))
+                .withHeader("X-Request-Timeout", matching("\\d{1,2}|100")));
+    }
+
+    @Test
+    void retrieveMovieById_requestDeadlineExceeded() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(2000)));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .header("X-Request-Timeout", "200")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        // asked for at the same time as the movie info, see retrieveMovieById_concurrentFanOut
+        WireMock.verify(1, getRequestedFor(urlPathMatching("/v1/reviews.*")));
+    }
+
+    @Test
+    void retrieveMovieById_concurrentFanOut() {
+        // a first call without delays, the connections and the classes are ready before the one that is timed
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/def"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo("def"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+        webTestClient.get()
+                .uri("/v1/movies/{id}", "def")
+                .exchange()
+                .expectStatus().isOk();
+
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1500)));
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(1500)));
+
+        var start = System.nanoTime();
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertEquals(2, Objects.requireNonNull(movie).getReviewList().size());
+                });
+        var elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // max(1500, 1500) and not 1500 + 1500
+        assertTrue(elapsedMillis >= 1500, "took " + elapsedMillis + "ms");
+        assertTrue(elapsedMillis < 2500, "took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void retrieveMovieById_concurrentFanOut_404_MovieInfo() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+        // still running when the 404 comes back, zip cancels it
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(3000)));
+
+        var start = System.nanoTime();
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("There is no MovieInfo available for the given Id: abc");
+
+        // the response did not wait for the reviews
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 3000);
+    }
+
+    @Test
+    void retrieveConnectionPoolMetrics() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+
+        // published by Reactor Netty for the movie info pool, it has opened its connection
+        webTestClient.get()
+                .uri("/actuator/metrics/reactor.netty.connection.provider.total.connections?tag=name:movieInfo")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.measurements[?(@.statistic == 'VALUE')].value").isNotEmpty();
+
+        // gauges of the reviews pool, separate from the movie info one
+        webTestClient.get()
+                .uri("/actuator/metrics/reactor.netty.connection.provider.total.connections?tag=name:reviews")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void retrievePrometheusMetrics() {
+        var movieId = "abc";
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .consumeWith(stringEntityExchangeResult -> {
+                    var body = Objects.requireNonNull(stringEntityExchangeResult.getResponseBody());
+                    // histogram of the endpoint
+                    assertTrue(body.contains("http_server_requests_seconds_bucket{application=\"movies-service\""));
+                    assertTrue(body.contains("uri=\"/v1/movies/{movieId}\""));
+                    // the client calls are tagged with their uri template, not with the movie id
+                    assertTrue(body.contains("uri=\"/v1/movieinfos/{id}\""));
+                    assertFalse(body.contains("uri=\"/v1/movieinfos/abc\""));
+                });
+    }
+
+    @Test
+    void retrieveResilienceStates() {
+        webTestClient.get()
+                .uri("/v1/resilience")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ResilienceState.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var states = listEntityExchangeResult.getResponseBody();
+                    assertEquals(2, Objects.requireNonNull(states).size());
+                    assertEquals("movieInfo", states.get(0).getName());
+                    assertEquals("CLOSED", states.get(0).getCircuitBreakerState());
+                    assertEquals("reviews", states.get(1).getName());
+                });
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        // given
+        stubFor(WireMock.get(urlPathEqualTo("/v1/movieinfos"))
+                .withQueryParam("ids", equalTo("1,2,3"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        // only 1 and 2 exist
+                        .withBodyFile("movieinfos.json")));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoIds", equalTo("1,2,3"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews-bulk.json")));
+
+        // when
+        webTestClient.get()
+                .uri("/v1/movies?ids={ids}", "1,2,3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(2)
+                .consumeWith(listEntityExchangeResult -> {
+                    Map<String, Movie> moviesById = Objects.requireNonNull(listEntityExchangeResult.getResponseBody())
+                            .stream()
+                            .collect(Collectors.toMap(movie -> movie.getMovieInfo().getMovieInfoId(), movie -> movie));
+                    assertEquals(2, moviesById.get("1").getReviewList().size());
+                    assertEquals(1, moviesById.get("2").getReviewList().size());
+                });
+
+        // one bulk call per upstream, no matter how many ids
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieStream_ordered() {
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n"
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}\n")));
+
+        // the reviews of the first movie come back last
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo("1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(500)));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo("2"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())
+                        .withBody("Review Service Not Available")));
+
+        webTestClient.get()
+                .uri("/v1/movies/stream?reviews=all&ordered=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movies = Objects.requireNonNull(listEntityExchangeResult.getResponseBody());
+                    assertEquals(2, movies.size());
+                    // in the order of the MovieInfo stream
+                    assertEquals("1", movies.get(0).getMovieInfo().getMovieInfoId());
+                    assertEquals(2, movies.get(0).getReviewList().size());
+                    // the failed lookup did not end the stream, the movie comes without its reviews
+                    assertEquals("2", movies.get(1).getMovieInfo().getMovieInfoId());
+                    assertNull(movies.get(1).getReviewList());
+                });
+    }
+
+    @Test
+    void retrieveMovieStream_summary() {
+        stubFor(WireMock.get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n")));
+
+        stubFor(WireMock.get(urlPathEqualTo("/v1/reviews/summary"))
+                .withQueryParam("movieInfoId", equalTo("1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("rating-summary.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/stream?reviews=summary")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(1)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movie = Objects.requireNonNull(listEntityExchangeResult.getResponseBody()).get(0);
+                    assertEquals(8.5, movie.getRatingSummary().getMean());
+                    assertNull(movie.getReviewList());
+                });
+
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
 }
@@ -0,0 +1,60 @@
+package com.reactivespring.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payload sizes of the lists WireFormatBenchmark (reactive-programming-benchmarks) encodes and decodes, JSON against Smile.
+ * From a hundred elements on, Smile refers back to the property names it already wrote; a single Review is about the same size
+ * in both, its rating costs 11 bytes as a Smile double against 3 characters of JSON.
+ */
+class WireFormatSizeTest {
+
+    ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1000})
+    void movieInfos_smileIsSmaller(int elementCount) throws Exception {
+        var movieInfos = new ArrayList<MovieInfo>(elementCount);
+        for (int i = 0; i < elementCount; i++) {
+            movieInfos.add(new MovieInfo(String.valueOf(i), "The Dark Knight " + i, 2008,
+                    List.of("Christian Bale", "HeathLedger", "Michael Caine"), LocalDate.of(2008, 7, 18)));
+        }
+
+        var json = jsonMapper.writeValueAsBytes(movieInfos);
+        var smile = smileMapper.writeValueAsBytes(movieInfos);
+
+        assertTrue(smile.length < json.length,
+                elementCount + " MovieInfo: Smile " + smile.length + " bytes, JSON " + json.length + " bytes");
+        assertEquals(movieInfos, smileMapper.readValue(smile, new TypeReference<List<MovieInfo>>() { }));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1000})
+    void reviews_smileIsSmaller(int elementCount) throws Exception {
+        var reviews = new ArrayList<Review>(elementCount);
+        for (int i = 0; i < elementCount; i++) {
+            reviews.add(new Review(String.valueOf(i), (long) i % 100, "Excellent Movie, must watch " + i, 8.5));
+        }
+
+        var json = jsonMapper.writeValueAsBytes(reviews);
+        var smile = smileMapper.writeValueAsBytes(reviews);
+
+        assertTrue(smile.length < json.length,
+                elementCount + " Review: Smile " + smile.length + " bytes, JSON " + json.length + " bytes");
+        assertEquals(reviews, smileMapper.readValue(smile, new TypeReference<List<Review>>() { }));
+    }
+}
@@ -0,0 +1,42 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.BulkheadFullException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkheadTest {
+
+    Bulkhead bulkhead = new Bulkhead("test", 2);
+
+    @Test
+    void rejectsOverMaxConcurrentCalls() {
+        Sinks.One<String> upstream = Sinks.one();
+        bulkhead.apply(upstream.asMono()).subscribe();
+        bulkhead.apply(upstream.asMono()).subscribe();
+        assertEquals(0, bulkhead.getAvailableConcurrentCalls());
+
+        StepVerifier.create(bulkhead.apply(Mono.just("value")))
+                .expectError(BulkheadFullException.class)
+                .verify();
+
+        // permits are given back once the calls complete
+        upstream.tryEmitValue("value");
+        assertEquals(2, bulkhead.getAvailableConcurrentCalls());
+        StepVerifier.create(bulkhead.apply(Mono.just("value")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    @Test
+    void releasesOnCancel() {
+        var disposable = bulkhead.apply(Mono.never()).subscribe();
+        assertEquals(1, bulkhead.getAvailableConcurrentCalls());
+
+        disposable.dispose();
+        assertEquals(2, bulkhead.getAvailableConcurrentCalls());
+    }
+}
@@ -0,0 +1,104 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.CallNotPermittedException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    // fake clock, lets the test move the time forward without sleeping
+    AtomicLong now = new AtomicLong();
+
+    // opens at 50% failures or 50% slow calls over the last 4 calls, 2 trial calls when half open
+    CircuitBreaker circuitBreaker = new CircuitBreaker("test", 50, 50, Duration.ofSeconds(1),
+            4, 4, Duration.ofSeconds(10), 2, ex -> ex instanceof IllegalStateException, now::get);
+
+    private void succeed() {
+        circuitBreaker.apply(Mono.just("ok")).block();
+    }
+
+    private void fail() {
+        StepVerifier.create(circuitBreaker.apply(Mono.error(new IllegalStateException("boom"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    void opensOnFailureRate() {
+        succeed();
+        fail();
+        succeed();
+        // 3 calls, below minimumNumberOfCalls
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        StepVerifier.create(circuitBreaker.apply(Mono.just("ok")))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+    }
+
+    @Test
+    void ignoredErrorsAreNotFailures() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(circuitBreaker.apply(Mono.error(new IllegalArgumentException("404"))))
+                    .expectError(IllegalArgumentException.class)
+                    .verify();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0f, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void opensOnSlowCallRate() {
+        for (int i = 0; i < 2; i++) {
+            succeed();
+        }
+        for (int i = 0; i < 2; i++) {
+            // the clock moves 2s while the call is running
+            circuitBreaker.apply(Mono.fromSupplier(() -> now.addAndGet(Duration.ofSeconds(2).toNanos()))).block();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_closesOnSuccess() {
+        circuitBreaker.transitionToOpenState();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        succeed();
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_reopensOnFailure() {
+        circuitBreaker.transitionToOpenState();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        succeed();
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_limitsTrialCalls() {
+        circuitBreaker.transitionToOpenState();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // two trial calls in flight, a third one is rejected
+        circuitBreaker.apply(Mono.never()).subscribe();
+        circuitBreaker.apply(Flux.never()).subscribe();
+        StepVerifier.create(circuitBreaker.apply(Mono.just("ok")))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+    }
+}
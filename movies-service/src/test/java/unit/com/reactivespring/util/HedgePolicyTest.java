@@ -0,0 +1,138 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgePolicyTest {
+
+    LatencyTracker latencyTracker = new LatencyTracker(100, 0.95, 10);
+    AtomicInteger calls = new AtomicInteger();
+    AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+    // the first call hangs for 1s, any later call answers after 10ms
+    Mono<String> call = Mono.defer(() -> calls.incrementAndGet() == 1
+            ? Mono.delay(Duration.ofSeconds(1)).thenReturn("primary").doOnCancel(() -> primaryCancelled.set(true))
+            : Mono.delay(Duration.ofMillis(10)).thenReturn("hedge"));
+
+    HedgePolicy hedgePolicy(boolean enabled, RetryBudget hedgeBudget) {
+        return new HedgePolicy("test", enabled, Duration.ofMillis(100), Duration.ofMillis(100), Duration.ofMillis(10),
+                latencyTracker, hedgeBudget);
+    }
+
+    @Test
+    void apply_hedgeWinsAndPrimaryIsCancelled() {
+        var hedgePolicy = hedgePolicy(true, new RetryBudget(1, 10, Duration.ofSeconds(10)));
+
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(call))
+                .thenAwait(Duration.ofMillis(110))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertTrue(primaryCancelled.get());
+    }
+
+    @Test
+    void apply_noHedgeWhenPrimaryIsFast() {
+        var hedgePolicy = hedgePolicy(true, new RetryBudget(1, 10, Duration.ofSeconds(10)));
+        calls.set(1);
+
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(call))
+                .thenAwait(Duration.ofMillis(10))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        // answered before the hedge delay, only one more call
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void apply_primaryFailsBeforeTheHedgeDelay() {
+        var hedgePolicy = hedgePolicy(true, new RetryBudget(1, 10, Duration.ofSeconds(10)));
+        // a 5xx after 10ms, the hedge still goes out after 100ms and answers
+        var failingCall = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(10)).then(Mono.<String>error(new IllegalStateException("500")))
+                : Mono.delay(Duration.ofMillis(10)).thenReturn("hedge"));
+
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(failingCall))
+                .thenAwait(Duration.ofMillis(110))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void apply_bothFail() {
+        var hedgePolicy = hedgePolicy(true, new RetryBudget(1, 10, Duration.ofSeconds(10)));
+        var failingCall = Mono.defer(() -> Mono.delay(Duration.ofMillis(10))
+                .then(Mono.<String>error(new IllegalStateException("500 #" + calls.incrementAndGet()))));
+
+        // the error of the first attempt, not the one of firstWithValue
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(failingCall))
+                .thenAwait(Duration.ofMillis(110))
+                .expectErrorMatches(ex -> ex instanceof IllegalStateException && ex.getMessage().equals("500 #1"))
+                .verify();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void apply_primaryFailsWithoutBudget() {
+        var hedgePolicy = hedgePolicy(true, new RetryBudget(0, 0, Duration.ofSeconds(10)));
+        var failingCall = Mono.defer(() -> Mono.delay(Duration.ofMillis(10))
+                .then(Mono.<String>error(new IllegalStateException("500 #" + calls.incrementAndGet()))));
+
+        // no hedge to wait for, the error comes out at the hedge delay
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(failingCall))
+                .thenAwait(Duration.ofMillis(100))
+                .expectErrorMessage("500 #1")
+                .verify();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void apply_noHedgeWithoutBudget() {
+        var hedgePolicy = hedgePolicy(true, new RetryBudget(0, 0, Duration.ofSeconds(10)));
+
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(call))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void apply_disabled() {
+        var hedgePolicy = hedgePolicy(false, new RetryBudget(1, 10, Duration.ofSeconds(10)));
+
+        StepVerifier.withVirtualTime(() -> hedgePolicy.apply(call))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void hedgeDelay_observedPercentile() {
+        var hedgePolicy = new HedgePolicy("test", true, Duration.ZERO, Duration.ofMillis(100), Duration.ofMillis(10),
+                latencyTracker, new RetryBudget(1, 10, Duration.ofSeconds(10)));
+        assertEquals(Duration.ofMillis(100), hedgePolicy.hedgeDelay());
+
+        for (int i = 1; i <= 100; i++) {
+            latencyTracker.record(Duration.ofMillis(i));
+        }
+        assertEquals(Duration.ofMillis(95), hedgePolicy.hedgeDelay());
+    }
+}
@@ -0,0 +1,45 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyTrackerTest {
+
+    @Test
+    void current_emptyUntilMinSamples() {
+        var latencyTracker = new LatencyTracker(100, 0.95, 10);
+        for (int i = 1; i < 10; i++) {
+            latencyTracker.record(Duration.ofMillis(i));
+        }
+        assertTrue(latencyTracker.current().isEmpty());
+
+        latencyTracker.record(Duration.ofMillis(10));
+        assertTrue(latencyTracker.current().isPresent());
+    }
+
+    @Test
+    void current_percentile() {
+        var latencyTracker = new LatencyTracker(100, 0.95, 10);
+        for (int i = 1; i <= 100; i++) {
+            latencyTracker.record(Duration.ofMillis(i));
+        }
+        assertEquals(Duration.ofMillis(95), latencyTracker.current().orElseThrow());
+    }
+
+    @Test
+    void current_slidingWindow() {
+        var latencyTracker = new LatencyTracker(64, 0.5, 1);
+        for (int i = 0; i < 64; i++) {
+            latencyTracker.record(Duration.ofSeconds(1));
+        }
+        // the slow calls are pushed out of the window by the fast ones
+        for (int i = 0; i < 64; i++) {
+            latencyTracker.record(Duration.ofMillis(10));
+        }
+        assertEquals(Duration.ofMillis(10), latencyTracker.current().orElseThrow());
+    }
+}
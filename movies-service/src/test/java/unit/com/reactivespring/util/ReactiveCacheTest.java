@@ -0,0 +1,173 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReactiveCacheTest {
+
+    // fake clock, lets the test move the time forward without sleeping
+    AtomicLong now = new AtomicLong();
+    AtomicInteger loads = new AtomicInteger();
+
+    ReactiveCache<String, String> cache = new ReactiveCache<>(true, 2,
+            Duration.ofSeconds(10), Duration.ofSeconds(30), now::get);
+
+    private Mono<String> loader(String key) {
+        return Mono.fromSupplier(() -> key + "-" + loads.incrementAndGet());
+    }
+
+    @Test
+    void get_fresh() {
+        StepVerifier.create(cache.get("abc", this::loader))
+                .expectNext("abc-1")
+                .verifyComplete();
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        // still fresh, loader is not called again
+        StepVerifier.create(cache.get("abc", this::loader))
+                .expectNext("abc-1")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_staleWhileRevalidate() {
+        cache.get("abc", this::loader).block();
+        now.addAndGet(Duration.ofSeconds(15).toNanos());
+
+        // stale value is served right away and refreshed in the background
+        StepVerifier.create(cache.get("abc", this::loader))
+                .expectNext("abc-1")
+                .verifyComplete();
+        StepVerifier.create(cache.get("abc", this::loader))
+                .expectNext("abc-2")
+                .verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_expired() {
+        cache.get("abc", this::loader).block();
+        now.addAndGet(Duration.ofSeconds(45).toNanos());
+
+        // too old to be served, the caller waits for the new value
+        StepVerifier.create(cache.get("abc", this::loader))
+                .expectNext("abc-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_loaderGetsPreviousValue() {
+        var previousValues = new ArrayList<String>();
+        BiFunction<String, String, Mono<String>> revalidatingLoader = (key, previous) -> {
+            previousValues.add(String.valueOf(previous));
+            // unchanged upstream, the previous value is kept
+            return previous != null ? Mono.just(previous) : loader(key);
+        };
+
+        cache.get("abc", revalidatingLoader).block();
+        now.addAndGet(Duration.ofSeconds(15).toNanos());
+        cache.get("abc", revalidatingLoader).block();
+        now.addAndGet(Duration.ofSeconds(45).toNanos());
+
+        // expired entries are revalidated as well, the caller waits for it
+        StepVerifier.create(cache.get("abc", revalidatingLoader))
+                .expectNext("abc-1")
+                .verifyComplete();
+        assertEquals(List.of("null", "abc-1", "abc-1"), previousValues);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_concurrentMisses() {
+        Sinks.One<String> upstream = Sinks.one();
+        var first = cache.get("abc", key -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        });
+        var second = cache.get("abc", key -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        });
+
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> upstream.tryEmitValue("abc-1"))
+                .assertNext(tuple -> {
+                    assertEquals("abc-1", tuple.getT1());
+                    assertEquals("abc-1", tuple.getT2());
+                })
+                .verifyComplete();
+        // both callers shared one upstream call
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_errorIsNotCached() {
+        StepVerifier.create(cache.get("abc", key -> Mono.error(new RuntimeException("boom"))))
+                .expectErrorMessage("boom")
+                .verify();
+
+        StepVerifier.create(cache.get("abc", this::loader))
+                .expectNext("abc-1")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsed() {
+        cache.get("a", this::loader).block();
+        cache.get("b", this::loader).block();
+        // touching "a" makes "b" the eldest entry
+        cache.get("a", this::loader).block();
+        cache.get("c", this::loader).block();
+
+        assertEquals(2, cache.size());
+        StepVerifier.create(cache.get("b", this::loader))
+                .expectNext("b-4")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_disabled() {
+        var disabledCache = new ReactiveCache<String, String>(false, 2,
+                Duration.ofSeconds(10), Duration.ofSeconds(30), now::get);
+
+        disabledCache.get("abc", this::loader).block();
+        disabledCache.get("abc", this::loader).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_disabled_concurrentCalls() {
+        var disabledCache = new ReactiveCache<String, String>(false, 2,
+                Duration.ofSeconds(10), Duration.ofSeconds(30), now::get);
+        Sinks.One<String> upstream = Sinks.one();
+        BiFunction<String, String, Mono<String>> loader = (key, previous) -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        };
+
+        StepVerifier.create(disabledCache.get("abc", loader).zipWith(disabledCache.get("abc", loader)))
+                .then(() -> upstream.tryEmitValue("abc-1"))
+                .assertNext(tuple -> {
+                    assertEquals("abc-1", tuple.getT1());
+                    assertEquals("abc-1", tuple.getT2());
+                })
+                .verifyComplete();
+        // nothing kept, but the two callers shared one upstream call
+        assertEquals(1, loads.get());
+        assertEquals(0, disabledCache.size());
+    }
+}
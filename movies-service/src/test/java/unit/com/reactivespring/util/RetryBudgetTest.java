@@ -0,0 +1,54 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    // fake clock, lets the test move the time forward without sleeping
+    AtomicLong now = new AtomicLong();
+
+    @Test
+    void tryAcquireRetry_minRetries() {
+        // 1 retry per second over 2 seconds, whatever the number of requests
+        var retryBudget = new RetryBudget(0.0, 1, Duration.ofSeconds(2), now::get);
+
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertFalse(retryBudget.tryAcquireRetry());
+    }
+
+    @Test
+    void tryAcquireRetry_ratio() {
+        var retryBudget = new RetryBudget(0.1, 0, Duration.ofSeconds(10), now::get);
+        for (int i = 0; i < 100; i++) {
+            retryBudget.recordRequest();
+        }
+
+        // 10% of 100 requests
+        for (int i = 0; i < 10; i++) {
+            assertTrue(retryBudget.tryAcquireRetry());
+        }
+        assertFalse(retryBudget.tryAcquireRetry());
+    }
+
+    @Test
+    void tryAcquireRetry_slidingWindow() {
+        var retryBudget = new RetryBudget(0.0, 1, Duration.ofSeconds(1), now::get);
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertFalse(retryBudget.tryAcquireRetry());
+
+        // half a window later the retry above is still counted
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        assertFalse(retryBudget.tryAcquireRetry());
+
+        // once it slid out of the window, there is room again
+        now.addAndGet(Duration.ofMillis(600).toNanos());
+        assertTrue(retryBudget.tryAcquireRetry());
+    }
+}
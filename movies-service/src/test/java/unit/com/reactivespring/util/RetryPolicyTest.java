@@ -0,0 +1,84 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    AtomicInteger calls = new AtomicInteger();
+
+    private Mono<String> failingCall(RuntimeException ex) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(ex);
+        });
+    }
+
+    private RetryPolicy retryPolicy(RetryBudget retryBudget) {
+        return new RetryPolicy("test", 3, Duration.ofMillis(1), Duration.ofMillis(10), retryBudget,
+                ex -> ex instanceof IllegalStateException);
+    }
+
+    @Test
+    void retry_exhausted() {
+        var retryPolicy = retryPolicy(new RetryBudget(0.1, 10, Duration.ofSeconds(10)));
+
+        StepVerifier.create(failingCall(new IllegalStateException("boom")).retryWhen(retryPolicy))
+                // the original failure, not a RetryExhaustedException
+                .expectErrorMatches(ex -> ex instanceof IllegalStateException && ex.getMessage().equals("boom"))
+                .verify();
+        // 1 call + 3 retries
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void retry_notRetryable() {
+        var retryPolicy = retryPolicy(new RetryBudget(0.1, 10, Duration.ofSeconds(10)));
+
+        StepVerifier.create(failingCall(new IllegalArgumentException("bad request")).retryWhen(retryPolicy))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void retry_budgetExhausted() {
+        // 1 retry for the whole window
+        var retryPolicy = retryPolicy(new RetryBudget(0.0, 1, Duration.ofSeconds(1)));
+
+        StepVerifier.create(failingCall(new IllegalStateException("boom")).retryWhen(retryPolicy))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void retry_deadline() {
+        var retryPolicy = new RetryPolicy("test", 3, Duration.ofSeconds(1), Duration.ofSeconds(1),
+                new RetryBudget(0.1, 10, Duration.ofSeconds(10)), ex -> ex instanceof IllegalStateException);
+
+        // the caller has no time left, no backoff fits in it
+        StepVerifier.create(failingCall(new IllegalStateException("boom"))
+                        .retryWhen(retryPolicy)
+                        .contextWrite(RequestDeadline.after(Duration.ZERO).into()))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofMillis(500));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void backoff_fullJitter() {
+        var retryPolicy = retryPolicy(new RetryBudget(0.1, 10, Duration.ofSeconds(10)));
+        for (int attempt = 0; attempt < 50; attempt++) {
+            var backoff = retryPolicy.backoff(attempt);
+            assertTrue(!backoff.isNegative() && backoff.compareTo(Duration.ofMillis(10)) <= 0, "backoff " + backoff);
+        }
+    }
+}
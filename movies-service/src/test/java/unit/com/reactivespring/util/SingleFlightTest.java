@@ -0,0 +1,117 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void execute_sharesInFlightCall() {
+        Sinks.One<String> upstream = Sinks.one();
+        var first = singleFlight.execute("abc", key -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        });
+        var second = singleFlight.execute("abc", key -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        });
+
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> assertEquals(1, singleFlight.inFlightCount()))
+                .then(() -> upstream.tryEmitValue("value"))
+                .assertNext(tuple -> {
+                    assertEquals("value", tuple.getT1());
+                    assertEquals("value", tuple.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        // released once completed
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void execute_releasedAfterCompletion() {
+        singleFlight.execute("abc", key -> Mono.fromSupplier(() -> "value-" + calls.incrementAndGet())).block();
+
+        StepVerifier.create(singleFlight.execute("abc", key -> Mono.fromSupplier(() -> "value-" + calls.incrementAndGet())))
+                .expectNext("value-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_differentKeys() {
+        Sinks.One<String> upstream = Sinks.one();
+        singleFlight.execute("abc", key -> upstream.asMono()).subscribe();
+        singleFlight.execute("def", key -> upstream.asMono()).subscribe();
+
+        assertEquals(2, singleFlight.inFlightCount());
+        upstream.tryEmitValue("value");
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void execute_errorReleasesKey() {
+        StepVerifier.create(singleFlight.execute("abc", key -> Mono.<String>error(new RuntimeException("boom"))))
+                .expectErrorMessage("boom")
+                .verify();
+
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void execute_sharedCallGoesByTheLatestDeadline() {
+        var deadlineFlight = new SingleFlight<String, Duration>(Duration.ofSeconds(5));
+        Sinks.One<String> upstream = Sinks.one();
+        // the time left of the shared call once the second caller joined
+        Function<String, Mono<Duration>> call = key -> upstream.asMono()
+                .then(Mono.deferContextual(contextView -> Mono.just(RequestDeadline.from(contextView)
+                        .orElseThrow()
+                        .remaining())));
+
+        var first = deadlineFlight.execute("abc", call)
+                .contextWrite(RequestDeadline.after(Duration.ofMillis(100)).into());
+        var second = deadlineFlight.execute("abc", call)
+                .contextWrite(RequestDeadline.after(Duration.ofSeconds(2)).into());
+
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> upstream.tryEmitValue("go"))
+                .assertNext(tuple -> {
+                    assertTrue(tuple.getT1().compareTo(Duration.ofMillis(100)) > 0, tuple.getT1().toString());
+                    assertTrue(tuple.getT1().compareTo(Duration.ofSeconds(2)) <= 0, tuple.getT1().toString());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_sharedCallStartsWithTheDeadlineOfItsCaller() {
+        var deadlineFlight = new SingleFlight<String, Duration>(Duration.ofSeconds(5));
+
+        StepVerifier.create(deadlineFlight.execute("abc", key -> Mono.deferContextual(contextView ->
+                                Mono.just(RequestDeadline.from(contextView).orElseThrow().remaining())))
+                        .contextWrite(RequestDeadline.after(Duration.ofMillis(300)).into()))
+                // what goes out as X-Request-Timeout, not the 5s of the shared call
+                .assertNext(remaining -> assertTrue(remaining.compareTo(Duration.ofMillis(300)) <= 0, remaining.toString()))
+                .verifyComplete();
+
+        // no caller deadline, bounded by the max
+        StepVerifier.create(deadlineFlight.execute("abc", key -> Mono.deferContextual(contextView ->
+                        Mono.just(RequestDeadline.from(contextView).orElseThrow().remaining()))))
+                .assertNext(remaining -> assertTrue(remaining.compareTo(Duration.ofSeconds(4)) > 0
+                        && remaining.compareTo(Duration.ofSeconds(5)) <= 0, remaining.toString()))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,82 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import com.learnreactiveprogramming.util.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * flatMap, concatMap and mergeSequential over names that each do a blocking call of ioMillis,
+ * on each ExecutionMode. Throughput gives the pipelines per second, SampleTime the latency percentiles of one pipeline.
+ *
+ * PARALLEL only has one thread per core to block, BOUNDED_ELASTIC is capped at 10 x the cores.
+ * concatMap does one call at a time whatever the mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BlockingIoBenchmark {
+
+    @Param({"PARALLEL", "BOUNDED_ELASTIC"})
+    ExecutionMode executionMode;
+
+    @Param({"200"})
+    int elementCount;
+
+    @Param({"1", "10"})
+    int ioMillis;
+
+    // 200: every call in flight at once, as far as the scheduler allows
+    @Param({"16", "200"})
+    int concurrency;
+
+    private FluxAndMonoGeneratorService service;
+    private List<String> names;
+    private Duration ioTime;
+
+    @Setup
+    public void setUp() {
+        service = new FluxAndMonoGeneratorService(executionMode);
+        names = Names.generate(elementCount);
+        ioTime = Duration.ofMillis(ioMillis);
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole blackhole) {
+        service.namesFlux_flatMap_blocking(names, ioTime, concurrency)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    @Benchmark
+    public void mergeSequential(Blackhole blackhole) {
+        service.namesFlux_mergeSequential_blocking(names, ioTime, concurrency)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    // elementCount x ioMillis per pipeline, does not depend on concurrency
+    @Benchmark
+    public void concatMap(Blackhole blackhole) {
+        service.namesFlux_concatMap_blocking(names, ioTime)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+}
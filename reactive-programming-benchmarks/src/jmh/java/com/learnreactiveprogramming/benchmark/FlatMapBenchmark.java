@@ -0,0 +1,59 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * flatMap with its concurrency and prefetch spelled out, next to concatMap as the baseline.
+ * Reactor's defaults are a concurrency of 256 and a prefetch of 32 (Queues.SMALL_BUFFER_SIZE and Queues.XS_BUFFER_SIZE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatMapBenchmark {
+
+    @Param({"1000", "100000"})
+    int elementCount;
+
+    @Param({"1", "16", "256"})
+    int concurrency;
+
+    @Param({"1", "32", "256"})
+    int prefetch;
+
+    private final FluxAndMonoGeneratorService service = new FluxAndMonoGeneratorService();
+    private List<String> names;
+
+    @Setup
+    public void setUp() {
+        names = Names.generate(elementCount);
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole blackhole) {
+        service.namesFlux_flatMap(names, 0, concurrency, prefetch).subscribe(blackhole::consume);
+    }
+
+    // does not depend on concurrency and prefetch, the same number is repeated for every combination
+    @Benchmark
+    public void concatMap(Blackhole blackhole) {
+        service.namesFlux_concatMap(names, 0).subscribe(blackhole::consume);
+    }
+}
@@ -0,0 +1,33 @@
+package com.learnreactiveprogramming.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Input of the benchmarks, names of lowercase letters, 3 to 10 of them unless a length is given.
+ * Seeded, every run and every fork works on the same names.
+ */
+final class Names {
+
+    private Names() {
+    }
+
+    static List<String> generate(int count) {
+        return generate(count, 0);
+    }
+
+    // length 0: random lengths from 3 to 10
+    static List<String> generate(int count, int length) {
+        var random = new Random(42);
+        var names = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            var chars = new char[length > 0 ? length : 3 + random.nextInt(8)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) ('a' + random.nextInt(26));
+            }
+            names.add(new String(chars));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,110 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The map pipeline with a CPU heavy mapper (hashRounds SHA-256 rounds per name), sequential against parallel rails.
+ * One scheduler worker per rail, the speedup levels off at the number of cores of the machine.
+ * cheap: the same with toUpperCase, where the hand-offs between threads cost more than they save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelBenchmark {
+
+    @Param({"10000"})
+    int elementCount;
+
+    @Param({"100"})
+    int hashRounds;
+
+    @Param({"1", "2", "4", "8"})
+    int rails;
+
+    private final FluxAndMonoGeneratorService service = new FluxAndMonoGeneratorService();
+    private List<String> names;
+    private Scheduler scheduler;
+    private Function<String, String> hash;
+
+    @Setup
+    public void setUp() {
+        names = Names.generate(elementCount);
+        scheduler = Schedulers.newParallel("benchmark", rails);
+        hash = name -> hash(name, hashRounds);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        service.namesFlux_map(names, hash).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void parallel_ordered(Blackhole blackhole) {
+        service.namesFlux_map_parallel(names, hash, rails, scheduler, true)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    @Benchmark
+    public void parallel_unordered(Blackhole blackhole) {
+        service.namesFlux_map_parallel(names, hash, rails, scheduler, false)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    @Benchmark
+    public void cheap_sequential(Blackhole blackhole) {
+        service.namesFlux_map(names).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void cheap_parallel_unordered(Blackhole blackhole) {
+        service.namesFlux_map_parallel(names, rails, scheduler, false)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    private static String hash(String name, int rounds) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var bytes = name.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < rounds; i++) {
+                bytes = digest.digest(bytes);
+            }
+            return String.format("%064x", new BigInteger(1, bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
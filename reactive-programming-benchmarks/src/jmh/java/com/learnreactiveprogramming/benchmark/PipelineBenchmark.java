@@ -0,0 +1,91 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the FluxAndMonoGeneratorService pipelines, without their artificial delays and without log().
+ * One operation is one whole pipeline over elementCount names, every element goes to the Blackhole.
+ * All the sources are synchronous, the pipeline is done when subscribe returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int elementCount;
+
+    // names are 3 to 10 characters long, filters out about a quarter of them
+    private static final int STRING_LENGTH = 4;
+
+    private final FluxAndMonoGeneratorService service = new FluxAndMonoGeneratorService();
+    private List<String> names;
+    private List<String> firstHalf;
+    private List<String> secondHalf;
+
+    @Setup
+    public void setUp() {
+        names = Names.generate(elementCount);
+        firstHalf = names.subList(0, elementCount / 2);
+        secondHalf = names.subList(elementCount / 2, elementCount);
+    }
+
+    @Benchmark
+    public void map(Blackhole blackhole) {
+        service.namesFlux_map(names).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void filter(Blackhole blackhole) {
+        service.namesFlux_filter(names, STRING_LENGTH).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole blackhole) {
+        service.namesFlux_flatMap(names, STRING_LENGTH).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void concatMap(Blackhole blackhole) {
+        service.namesFlux_concatMap(names, STRING_LENGTH).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void transform(Blackhole blackhole) {
+        service.nameFlux_transform(names, STRING_LENGTH).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void merge(Blackhole blackhole) {
+        service.explore_merge(Flux.fromIterable(firstHalf), Flux.fromIterable(secondHalf)).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void mergeSequential(Blackhole blackhole) {
+        service.explore_mergeSequential(Flux.fromIterable(firstHalf), Flux.fromIterable(secondHalf)).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void zip(Blackhole blackhole) {
+        service.explore_zip(Flux.fromIterable(firstHalf), Flux.fromIterable(secondHalf)).subscribe(blackhole::consume);
+    }
+}
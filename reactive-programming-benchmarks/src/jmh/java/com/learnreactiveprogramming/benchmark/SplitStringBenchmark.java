@@ -0,0 +1,78 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import com.learnreactiveprogramming.util.CharacterFlux;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * split("") against CharacterFlux, on one name of nameLength characters and through the flatMap pipeline.
+ * The difference is in gc.alloc.rate.norm: split("") allocates a String[] and a String per character,
+ * CharacterFlux allocates the same few objects whatever the length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitStringBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int nameLength;
+
+    // names through the flatMap pipeline
+    private static final int NAME_COUNT = 16;
+
+    private final FluxAndMonoGeneratorService service = new FluxAndMonoGeneratorService();
+    private String name;
+    private List<String> names;
+
+    @Setup
+    public void setUp() {
+        names = Names.generate(NAME_COUNT, nameLength);
+        name = names.get(0);
+    }
+
+    @Benchmark
+    public void splitString_regex(Blackhole blackhole) {
+        service.splitString_regex(name).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void splitString(Blackhole blackhole) {
+        service.splitString(name).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void codePoints(Blackhole blackhole) {
+        CharacterFlux.codePoints(name).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void flatMap_regex(Blackhole blackhole) {
+        Flux.fromIterable(names)
+                .map(String::toUpperCase)
+                .flatMap(service::splitString_regex)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole blackhole) {
+        service.namesFlux_flatMap(names, 0).subscribe(blackhole::consume);
+    }
+}
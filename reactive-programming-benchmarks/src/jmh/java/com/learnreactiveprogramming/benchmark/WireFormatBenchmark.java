@@ -0,0 +1,90 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing and reading the MovieInfo and Review lists movies-service gets from the other services, JSON against Smile.
+ * The mappers are built like the ones of the WebFlux codecs (Jackson2ObjectMapperBuilder).
+ *
+ * The CPU cost is the score, the allocations are in gc.alloc.rate.norm, the payload sizes are checked by WireFormatSizeTest of movies-service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<MovieInfo>> MOVIE_INFOS = new TypeReference<>() { };
+    private static final TypeReference<List<Review>> REVIEWS = new TypeReference<>() { };
+
+    @Param({"json", "smile"})
+    String format;
+
+    @Param({"1", "100", "1000"})
+    int elementCount;
+
+    private ObjectMapper objectMapper;
+    private List<MovieInfo> movieInfos;
+    private List<Review> reviews;
+    private byte[] movieInfosBytes;
+    private byte[] reviewsBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = "smile".equals(format)
+                ? Jackson2ObjectMapperBuilder.smile().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        movieInfos = new ArrayList<>(elementCount);
+        reviews = new ArrayList<>(elementCount);
+        for (int i = 0; i < elementCount; i++) {
+            movieInfos.add(new MovieInfo(String.valueOf(i), "The Dark Knight " + i, 2008,
+                    List.of("Christian Bale", "HeathLedger", "Michael Caine"), LocalDate.of(2008, 7, 18)));
+            reviews.add(new Review(String.valueOf(i), (long) i % 100, "Excellent Movie, must watch " + i, 8.5));
+        }
+        movieInfosBytes = objectMapper.writeValueAsBytes(movieInfos);
+        reviewsBytes = objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public byte[] encodeMovieInfos() throws IOException {
+        return objectMapper.writeValueAsBytes(movieInfos);
+    }
+
+    @Benchmark
+    public List<MovieInfo> decodeMovieInfos() throws IOException {
+        return objectMapper.readValue(movieInfosBytes, MOVIE_INFOS);
+    }
+
+    @Benchmark
+    public byte[] encodeReviews() throws IOException {
+        return objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<Review> decodeReviews() throws IOException {
+        return objectMapper.readValue(reviewsBytes, REVIEWS);
+    }
+}
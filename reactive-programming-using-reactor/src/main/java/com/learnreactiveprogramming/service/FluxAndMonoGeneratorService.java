@@ -1,24 +1,50 @@
 package com.learnreactiveprogramming.service;
 
+import com.learnreactiveprogramming.util.CharacterFlux;
+import com.learnreactiveprogramming.util.ExecutionMode;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 import java.time.Duration;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 import java.util.function.Function;
 
 public class FluxAndMonoGeneratorService {
+
+    private final ExecutionMode executionMode;
+
+    // delayElements() runs on Reactor's parallel scheduler, like it does by default
+    public FluxAndMonoGeneratorService() {
+        this(ExecutionMode.PARALLEL);
+    }
+
+    public FluxAndMonoGeneratorService(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
     public Flux<String> namesFlux() {
         // creating a Flux
         return Flux.fromIterable(List.of("Alex", "Joli", "Popoy", "Khaye")); // imagine we retrieved this in a db
     }
     public Flux<String> namesFlux_map() {
         // creating a Flux
-        return Flux.fromIterable(List.of("Alex", "Joli", "Popoy"))
-                .map(String::toUpperCase)
+        return namesFlux_map(List.of("Alex", "Joli", "Popoy"))
                 .log();
     }
+    // the pipelines below take their input and have no delay and no log(), so they can be benchmarked with any number of elements
+    public Flux<String> namesFlux_map(List<String> names) {
+        return namesFlux_map(names, String::toUpperCase);
+    }
+    public Flux<String> namesFlux_map(List<String> names, Function<String, String> mapper) {
+        return Flux.fromIterable(names)
+                .map(mapper);
+    }
     public Flux<String> namesFlux_immutability() {
         var nameFlux = Flux.fromIterable(List.of("Alex", "Joli", "Popoy"));
         // this will cause error. It needs to be attached via method chaining
@@ -29,21 +55,39 @@ public class FluxAndMonoGeneratorService {
 
     public Flux<String> namesFlux_filter(int stringLength) {
         // creating a Flux
-        return Flux.fromIterable(List.of("Alex", "Joli", "Popoy"))
-                .map(String::toUpperCase)
-                .filter(s -> s.length() > stringLength)
+        return namesFlux_filter(List.of("Alex", "Joli", "Popoy"), stringLength)
                 .log();
     }
+    public Flux<String> namesFlux_filter(List<String> names, int stringLength) {
+        return Flux.fromIterable(names)
+                .map(String::toUpperCase)
+                .filter(s -> s.length() > stringLength);
+    }
     public Flux<String> namesFlux_flatMap(int stringLength) {
         // creating a Flux
-        return Flux.fromIterable(List.of("alex", "ben", "chloe"))
+        return namesFlux_flatMap(List.of("alex", "ben", "chloe"), stringLength) // "A", "L","E","X","C","H","L","O","E"
+                .log();
+    }
+    public Flux<String> namesFlux_flatMap(List<String> names, int stringLength) {
+        return Flux.fromIterable(names)
                 .map(String::toUpperCase)
                 .filter(s -> s.length() > stringLength)
-                .flatMap(this::splitString) // "A", "L","E","X","C","H","L","O","E"
-                .log();
+                .flatMap(this::splitString);
     }
-    // ALEX -> Flux(A,L,E,X)
+    // concurrency: inner Flux subscribed at the same time, prefetch: elements requested from each of them
+    public Flux<String> namesFlux_flatMap(List<String> names, int stringLength, int concurrency, int prefetch) {
+        return Flux.fromIterable(names)
+                .map(String::toUpperCase)
+                .filter(s -> s.length() > stringLength)
+                .flatMap(this::splitString, concurrency, prefetch);
+    }
+    // ALEX -> Flux(A,L,E,X), split by code point
     public Flux<String> splitString(String name) {
+        return CharacterFlux.of(name); // no String[], the characters are read from the name as they are requested
+    }
+    // split by char with split(""): a regex, a String[] and a String per char, kept to compare against.
+    // Same elements as splitString unless the name has a surrogate pair, split("") cuts it in two halves
+    public Flux<String> splitString_regex(String name) {
         var charArray = name.split(""); // returns String[]
         return Flux.fromArray(charArray);
     }
@@ -60,10 +104,16 @@ public class FluxAndMonoGeneratorService {
                 .log();
     }
     public Flux<String> splitString_withDelayForAsyncDemo(String name) {
-        var charArray = name.split(""); // returns String[]
         var delay = new Random().nextInt(1000); // random value between 0 - 1000
-        return Flux.fromArray(charArray)
-                .delayElements(Duration.ofMillis(delay)); // make this async
+        return splitString(name)
+                .delayElements(Duration.ofMillis(delay), executionMode.scheduler()); // make this async
+    }
+    // same as namesFlux_flatMap(names, stringLength), one inner Flux at a time
+    public Flux<String> namesFlux_concatMap(List<String> names, int stringLength) {
+        return Flux.fromIterable(names)
+                .map(String::toUpperCase)
+                .filter(s -> s.length() > stringLength)
+                .concatMap(this::splitString);
     }
     public Flux<String> namesFlux_concatMap(int stringLength) {
         // creating a Flux
@@ -92,9 +142,8 @@ public class FluxAndMonoGeneratorService {
     }
 
     private Mono<List<String>> splitStringMono(String s) {
-        var charArray = s.split(""); // returns String[]
-        var charList = List.of(charArray); // ALEX -> A,L,E,X
-        return Mono.just(charList)
+        return splitString(s)
+                .collectList() // ALEX -> A,L,E,X
                 .log();
     }
     public Flux<String> nameMono_flatMapMany(int stringLength) {
@@ -104,13 +153,22 @@ public class FluxAndMonoGeneratorService {
                 .flatMapMany(this::splitString_withDelayForAsyncDemo)
                 .log(); // Mono<List<String>> A,L,E,X
     }
+    public Flux<String> nameMono_flatMapMany(String name, int stringLength) {
+        return Mono.just(name)
+                .map(String::toUpperCase)
+                .filter(s -> s.length() > stringLength)
+                .flatMapMany(this::splitString);
+    }
 
     // transform() is used to extract piece of functionality and assign it to variable.
     // (useful if you want a reusable function/logic)
     public Flux<String> nameFlux_transform(int stringLength) {
+        return nameFlux_transform(List.of("alex", "ben", "chloe"), stringLength);
+    }
+    public Flux<String> nameFlux_transform(List<String> names, int stringLength) {
         Function<Flux<String>, Flux<String>> filterMap = name -> name.map(String::toUpperCase)
                 .filter(s -> s.length() > stringLength);
-        return Flux.fromIterable(List.of("alex", "ben", "chloe"))
+        return Flux.fromIterable(names)
                 .transform(filterMap)
                 .flatMap(this::splitString);
     }
@@ -155,19 +213,22 @@ public class FluxAndMonoGeneratorService {
     public Flux<String> explore_merge() {
         //
         var abcFlux = Flux.just("A", "B", "C")
-                .delayElements(Duration.ofMillis(100)); // A
+                .delayElements(Duration.ofMillis(100), executionMode.scheduler()); // A
         var defFlux = Flux.just("D", "E", "F")
-                .delayElements(Duration.ofMillis(150));
+                .delayElements(Duration.ofMillis(150), executionMode.scheduler());
 
-        return Flux.merge(abcFlux, defFlux).log();
+        return explore_merge(abcFlux, defFlux).log();
+    }
+    public Flux<String> explore_merge(Flux<String> first, Flux<String> second) {
+        return Flux.merge(first, second);
     }
 
     public Flux<String> explore_mergeWith() {
         //
         var abcFlux = Flux.just("A", "B", "C")
-                .delayElements(Duration.ofMillis(100)); // A
+                .delayElements(Duration.ofMillis(100), executionMode.scheduler()); // A
         var defFlux = Flux.just("D", "E", "F")
-                .delayElements(Duration.ofMillis(150));
+                .delayElements(Duration.ofMillis(150), executionMode.scheduler());
 
         return abcFlux.mergeWith(defFlux).log();
     }
@@ -183,11 +244,14 @@ public class FluxAndMonoGeneratorService {
     public Flux<String> explore_mergeSequential() {
         // scenario when you have two data sources and you want them in order
         var abcFlux = Flux.just("A", "B", "C")
-                .delayElements(Duration.ofMillis(100)); // A
+                .delayElements(Duration.ofMillis(100), executionMode.scheduler()); // A
         var defFlux = Flux.just("D", "E", "F")
-                .delayElements(Duration.ofMillis(125));
+                .delayElements(Duration.ofMillis(125), executionMode.scheduler());
 
-        return Flux.mergeSequential(abcFlux, defFlux).log();
+        return explore_mergeSequential(abcFlux, defFlux).log();
+    }
+    public Flux<String> explore_mergeSequential(Flux<String> first, Flux<String> second) {
+        return Flux.mergeSequential(first, second);
     }
 
 
@@ -196,7 +260,10 @@ public class FluxAndMonoGeneratorService {
         var abcFlux = Flux.just("A", "B", "C");
         var defFlux = Flux.just("D", "E", "F");
 
-        return Flux.zip(abcFlux, defFlux, (first, second) -> first + second).log(); // AD, BE, CF
+        return explore_zip(abcFlux, defFlux).log(); // AD, BE, CF
+    }
+    public Flux<String> explore_zip(Flux<String> first, Flux<String> second) {
+        return Flux.zip(first, second, (a, b) -> a + b);
     }
 
     public Flux<String> explore_zip4() {
@@ -231,6 +298,77 @@ public class FluxAndMonoGeneratorService {
     }
 
 
+    /**
+     * Every name goes through a blocking call (JDBC, a file, a legacy client...) that takes ioTime,
+     * run on the scheduler of the execution mode so the caller's thread is never blocked.
+     *
+     * concurrency: blocking calls in flight at the same time
+     */
+    public Flux<String> namesFlux_flatMap_blocking(List<String> names, Duration ioTime, int concurrency) {
+        return Flux.fromIterable(names)
+                .flatMap(name -> blockingCall(name, ioTime), concurrency); // in the order the calls complete
+    }
+    public Flux<String> namesFlux_concatMap_blocking(List<String> names, Duration ioTime) {
+        return Flux.fromIterable(names)
+                .concatMap(name -> blockingCall(name, ioTime)); // one call at a time
+    }
+    public Flux<String> namesFlux_mergeSequential_blocking(List<String> names, Duration ioTime, int concurrency) {
+        // calls run like with flatMap, the results come out in the order of the names
+        return Flux.mergeSequential(Flux.fromIterable(names).map(name -> blockingCall(name, ioTime)),
+                concurrency, 1);
+    }
+    private Mono<String> blockingCall(String name, Duration ioTime) {
+        return Mono.fromCallable(() -> {
+                    Thread.sleep(ioTime.toMillis()); // stands for the blocking call
+                    return name.toUpperCase();
+                })
+                .subscribeOn(executionMode.scheduler());
+    }
+
+    /**
+     * parallel() splits the names into rails, runOn() gives each rail a worker of the scheduler,
+     * so the map / filter / flatMap steps run on several cores at the same time.
+     *
+     * rails: number of rails, more than the scheduler has workers only adds switching between them
+     * ordered: true gives the elements back in the order of the sequential version, false gives them as soon as a rail has them
+     */
+    public Flux<String> namesFlux_map_parallel(List<String> names, int rails, Scheduler scheduler, boolean ordered) {
+        return namesFlux_map_parallel(names, String::toUpperCase, rails, scheduler, ordered);
+    }
+    public Flux<String> namesFlux_map_parallel(List<String> names, Function<String, String> mapper,
+                                               int rails, Scheduler scheduler, boolean ordered) {
+        return onRails(names, rails, scheduler, ordered, rail -> rail
+                .map(name -> Tuples.of(name.getT1(), mapper.apply(name.getT2()))));
+    }
+    public Flux<String> namesFlux_filter_parallel(List<String> names, int stringLength,
+                                                  int rails, Scheduler scheduler, boolean ordered) {
+        return onRails(names, rails, scheduler, ordered, rail -> rail
+                .map(name -> Tuples.of(name.getT1(), name.getT2().toUpperCase()))
+                .filter(name -> name.getT2().length() > stringLength));
+    }
+    public Flux<String> namesFlux_flatMap_parallel(List<String> names, int stringLength,
+                                                   int rails, Scheduler scheduler, boolean ordered) {
+        return onRails(names, rails, scheduler, ordered, rail -> rail
+                .map(name -> Tuples.of(name.getT1(), name.getT2().toUpperCase()))
+                .filter(name -> name.getT2().length() > stringLength)
+                // the characters keep the index of their name
+                .flatMap(name -> splitString(name.getT2()).map(character -> Tuples.of(name.getT1(), character))));
+    }
+    /**
+     * Every name travels with its index. A rail handles its names in the order it received them,
+     * so ordered() only has to take the smallest index at the head of the rails to get the sequential order back.
+     */
+    private Flux<String> onRails(List<String> names, int rails, Scheduler scheduler, boolean ordered,
+                                 Function<ParallelFlux<Tuple2<Long, String>>, ParallelFlux<Tuple2<Long, String>>> pipeline) {
+        var railFlux = Flux.fromIterable(names)
+                .index()
+                .parallel(rails)
+                .runOn(scheduler)
+                .transform(pipeline);
+        return (ordered ? railFlux.ordered(Comparator.comparingLong(Tuple2<Long, String>::getT1)) : railFlux.sequential())
+                .map(Tuple2::getT2);
+    }
+
     public static void main(String[] args) {
         FluxAndMonoGeneratorService fluxAndMonoGeneratorService = new FluxAndMonoGeneratorService();
         // Only way to access the value, "subscribe" to the Flux
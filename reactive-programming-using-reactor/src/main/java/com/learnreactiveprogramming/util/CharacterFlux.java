@@ -0,0 +1,83 @@
+package com.learnreactiveprogramming.util;
+
+import reactor.core.publisher.Flux;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Flux of the code points of a String, each one as a String, read one by one from the String itself.
+ *
+ * Not the same as Flux.fromArray(name.split("")): split("") gives one element per char, so a character outside
+ * the BMP (an emoji...) comes out as the two halves of its surrogate pair, here it is one element.
+ * Both only agree on Strings without surrogate pairs.
+ * No regex, no String[] and no String per character: the Latin-1 ones come from a shared table,
+ * only the others are allocated, when they are emitted.
+ * The source is lazy and follows the demand, a take(1) over a long String reads one character.
+ */
+public final class CharacterFlux {
+
+    private static final String[] LATIN_1 = new String[256];
+
+    static {
+        for (int i = 0; i < LATIN_1.length; i++) {
+            LATIN_1[i] = String.valueOf((char) i);
+        }
+    }
+
+    private CharacterFlux() {
+    }
+
+    // ALEX -> Flux(A,L,E,X)
+    public static Flux<String> of(String value) {
+        if (value.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(() -> new CodePointIterator<>(value) {
+            @Override
+            String convert(int codePoint) {
+                return codePoint < LATIN_1.length ? LATIN_1[codePoint] : new String(Character.toChars(codePoint));
+            }
+        });
+    }
+
+    // ALEX -> Flux(65,76,69,88), the Integer of the ASCII ones comes from the Integer cache
+    public static Flux<Integer> codePoints(String value) {
+        if (value.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(() -> new CodePointIterator<>(value) {
+            @Override
+            Integer convert(int codePoint) {
+                return codePoint;
+            }
+        });
+    }
+
+    private abstract static class CodePointIterator<T> implements Iterator<T> {
+
+        private final String value;
+        private int index;
+
+        private CodePointIterator(String value) {
+            this.value = value;
+        }
+
+        abstract T convert(int codePoint);
+
+        @Override
+        public boolean hasNext() {
+            return index < value.length();
+        }
+
+        @Override
+        public T next() {
+            if (index >= value.length()) {
+                throw new NoSuchElementException();
+            }
+            var codePoint = value.codePointAt(index);
+            index += Character.charCount(codePoint);
+            return convert(codePoint);
+        }
+    }
+}
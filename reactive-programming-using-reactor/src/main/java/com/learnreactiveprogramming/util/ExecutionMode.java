@@ -0,0 +1,28 @@
+package com.learnreactiveprogramming.util;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Where FluxAndMonoGeneratorService runs its work.
+ *
+ * - PARALLEL: one thread per core, for non blocking work only, a blocking call holds one of the few threads
+ * - BOUNDED_ELASTIC: threads created on demand up to 10 x the cores, made for blocking calls
+ */
+public enum ExecutionMode {
+
+    PARALLEL {
+        @Override
+        public Scheduler scheduler() {
+            return Schedulers.parallel();
+        }
+    },
+    BOUNDED_ELASTIC {
+        @Override
+        public Scheduler scheduler() {
+            return Schedulers.boundedElastic();
+        }
+    };
+
+    public abstract Scheduler scheduler();
+}
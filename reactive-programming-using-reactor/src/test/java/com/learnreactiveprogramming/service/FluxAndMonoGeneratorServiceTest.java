@@ -1,9 +1,15 @@
 package com.learnreactiveprogramming.service;
 
+import com.learnreactiveprogramming.util.ExecutionMode;
 import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class FluxAndMonoGeneratorServiceTest {
     FluxAndMonoGeneratorService fluxAndMonoGeneratorService = new FluxAndMonoGeneratorService();
@@ -69,6 +75,38 @@ class FluxAndMonoGeneratorServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void splitString_nonBmpCharacter() {
+        // U+1D11E MUSICAL SYMBOL G CLEF, outside the BMP: one code point, two chars
+        var name = "A\uD834\uDD1E";
+
+        StepVerifier.create(fluxAndMonoGeneratorService.splitString(name))
+                .expectNext("A", "\uD834\uDD1E")
+                .verifyComplete();
+        StepVerifier.create(fluxAndMonoGeneratorService.splitString_regex(name))
+                .expectNext("A", "\uD834", "\uDD1E")
+                .verifyComplete();
+    }
+
+    @Test
+    void namesFlux_flatMap_concurrencyAndPrefetch() {
+        // a concurrency of 1 subscribes one inner Flux at a time, like concatMap
+        var namesFluxFlatMap = fluxAndMonoGeneratorService.namesFlux_flatMap(List.of("alex", "ben", "chloe"), 3, 1, 1);
+
+        StepVerifier.create(namesFluxFlatMap)
+                .expectNext("A", "L","E","X","C","H","L","O","E")
+                .verifyComplete();
+    }
+
+    @Test
+    void namesFlux_concatMap_noDelay() {
+        var namesFluxConcatMap = fluxAndMonoGeneratorService.namesFlux_concatMap(List.of("alex", "ben", "chloe"), 3);
+
+        StepVerifier.create(namesFluxConcatMap)
+                .expectNext("A", "L","E","X","C","H","L","O","E")
+                .verifyComplete();
+    }
+
     @Test
     void namesFlux_flatMapAsync() {
         var namesFluxFlatMap = fluxAndMonoGeneratorService.namesFlux_flatMapAsync(3);
@@ -109,6 +147,15 @@ class FluxAndMonoGeneratorServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void nameMono_flatMapMany_noDelay() {
+        var value = fluxAndMonoGeneratorService.nameMono_flatMapMany("alex", 3);
+
+        StepVerifier.create(value)
+                .expectNext("A", "L", "E", "X")
+                .verifyComplete();
+    }
+
     @Test
     void nameFlux_transform() {
         var namesFluxFlatMap = fluxAndMonoGeneratorService.nameFlux_transform(3);
@@ -185,4 +232,97 @@ class FluxAndMonoGeneratorServiceTest {
                 .expectNext("AD14", "BE25", "CF36")
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    // enough names for every rail to get several of them
+    List<String> parallelNames = IntStream.range(0, 1000)
+            .mapToObj(i -> "name" + i)
+            .collect(Collectors.toList());
+
+    @Test
+    void namesFlux_map_parallel_ordered() {
+        var sequential = fluxAndMonoGeneratorService.namesFlux_map(parallelNames).collectList().block();
+
+        var value = fluxAndMonoGeneratorService.namesFlux_map_parallel(parallelNames, 4, Schedulers.parallel(), true);
+
+        StepVerifier.create(value.collectList())
+                .expectNext(sequential)
+                .verifyComplete();
+    }
+    @Test
+    void namesFlux_map_parallel_unordered() {
+        var sequential = sorted(fluxAndMonoGeneratorService.namesFlux_map(parallelNames).collectList().block());
+
+        var value = fluxAndMonoGeneratorService.namesFlux_map_parallel(parallelNames, 4, Schedulers.parallel(), false);
+
+        StepVerifier.create(value.collectList().map(this::sorted))
+                .expectNext(sequential)
+                .verifyComplete();
+    }
+    @Test
+    void namesFlux_filter_parallel_ordered() {
+        var sequential = fluxAndMonoGeneratorService.namesFlux_filter(parallelNames, 6).collectList().block();
+
+        var value = fluxAndMonoGeneratorService.namesFlux_filter_parallel(parallelNames, 6, 4, Schedulers.parallel(), true);
+
+        StepVerifier.create(value.collectList())
+                .expectNext(sequential)
+                .verifyComplete();
+    }
+    @Test
+    void namesFlux_flatMap_parallel_ordered() {
+        var sequential = fluxAndMonoGeneratorService.namesFlux_flatMap(parallelNames, 5).collectList().block();
+
+        var value = fluxAndMonoGeneratorService.namesFlux_flatMap_parallel(parallelNames, 5, 4, Schedulers.parallel(), true);
+
+        StepVerifier.create(value.collectList())
+                .expectNext(sequential)
+                .verifyComplete();
+    }
+    @Test
+    void namesFlux_flatMap_parallel_unordered() {
+        var sequential = sorted(fluxAndMonoGeneratorService.namesFlux_flatMap(parallelNames, 5).collectList().block());
+
+        var value = fluxAndMonoGeneratorService.namesFlux_flatMap_parallel(parallelNames, 5, 4, Schedulers.parallel(), false);
+
+        StepVerifier.create(value.collectList().map(this::sorted))
+                .expectNext(sequential)
+                .verifyComplete();
+    }
+
+    @Test
+    void namesFlux_flatMap_blocking() {
+        var service = new FluxAndMonoGeneratorService(ExecutionMode.BOUNDED_ELASTIC);
+
+        var value = service.namesFlux_flatMap_blocking(List.of("alex", "ben", "chloe"), Duration.ofMillis(10), 3);
+
+        StepVerifier.create(value.collectList().map(this::sorted))
+                .expectNext(List.of("ALEX", "BEN", "CHLOE"))
+                .verifyComplete();
+    }
+    @Test
+    void namesFlux_concatMap_blocking() {
+        var service = new FluxAndMonoGeneratorService(ExecutionMode.BOUNDED_ELASTIC);
+
+        var value = service.namesFlux_concatMap_blocking(List.of("alex", "ben", "chloe"), Duration.ofMillis(10));
+
+        StepVerifier.create(value)
+                .expectNext("ALEX", "BEN", "CHLOE")
+                .verifyComplete();
+    }
+    @Test
+    void namesFlux_mergeSequential_blocking() {
+        var service = new FluxAndMonoGeneratorService(ExecutionMode.BOUNDED_ELASTIC);
+
+        var value = service.namesFlux_mergeSequential_blocking(List.of("alex", "ben", "chloe"), Duration.ofMillis(10), 3);
+
+        StepVerifier.create(value)
+                .expectNext("ALEX", "BEN", "CHLOE")
+                .verifyComplete();
+    }
+
+    private List<String> sorted(List<String> values) {
+        var sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted;
+    }
+}
@@ -0,0 +1,67 @@
+package com.learnreactiveprogramming.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CharacterFluxTest {
+
+    @Test
+    void of() {
+        StepVerifier.create(CharacterFlux.of("ALEX"))
+                .expectNext("A", "L", "E", "X")
+                .verifyComplete();
+    }
+
+    @Test
+    void of_sameElementsAsSplit() {
+        var value = "caf\u00e9 au lait!";
+
+        StepVerifier.create(CharacterFlux.of(value).collectList())
+                .expectNext(List.of(value.split("")))
+                .verifyComplete();
+    }
+
+    @Test
+    void of_surrogatePair() {
+        // split("") would give the two halves of the emoji
+        StepVerifier.create(CharacterFlux.of("A\uD83D\uDE00"))
+                .expectNext("A", "\uD83D\uDE00")
+                .verifyComplete();
+    }
+
+    @Test
+    void of_empty() {
+        StepVerifier.create(CharacterFlux.of(""))
+                .verifyComplete();
+    }
+
+    @Test
+    void of_sharedLatin1Strings() {
+        var first = CharacterFlux.of("A").blockFirst();
+        var second = CharacterFlux.of("ALEX").blockFirst();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void of_followsDemand() {
+        StepVerifier.create(CharacterFlux.of("ALEX"), 0)
+                .thenRequest(1)
+                .expectNext("A")
+                .thenRequest(2)
+                .expectNext("L", "E")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void codePoints() {
+        StepVerifier.create(CharacterFlux.codePoints("A\uD83D\uDE00"))
+                .expectNext((int) 'A', 0x1F600)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,33 @@
+package com.learnreactiveprogramming.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionModeTest {
+
+    @Test
+    void scheduler() {
+        assertSame(Schedulers.parallel(), ExecutionMode.PARALLEL.scheduler());
+        assertSame(Schedulers.boundedElastic(), ExecutionMode.BOUNDED_ELASTIC.scheduler());
+    }
+
+    @Test
+    void scheduler_runsTheWorkOnItsThreads() {
+        StepVerifier.create(threadName(ExecutionMode.PARALLEL))
+                .assertNext(thread -> assertTrue(thread.startsWith("parallel-"), thread))
+                .verifyComplete();
+        StepVerifier.create(threadName(ExecutionMode.BOUNDED_ELASTIC))
+                .assertNext(thread -> assertTrue(thread.startsWith("boundedElastic-"), thread))
+                .verifyComplete();
+    }
+
+    private static Mono<String> threadName(ExecutionMode executionMode) {
+        return Mono.fromCallable(() -> Thread.currentThread().getName())
+                .subscribeOn(executionMode.scheduler());
+    }
+}
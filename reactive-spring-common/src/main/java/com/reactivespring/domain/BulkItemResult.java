@@ -0,0 +1,36 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one element of a bulk request, index is its position in the request body.
+ * Results are streamed back as batches complete, so they are not necessarily in request order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemResult<T> {
+
+    public enum Status {
+        CREATED, FAILED
+    }
+
+    private long index;
+    private String id;
+    private Status status;
+    private String error;
+    // the element itself, kept server side only
+    @JsonIgnore
+    private T item;
+
+    public static <T> BulkItemResult<T> created(long index, String id, T item) {
+        return new BulkItemResult<>(index, id, Status.CREATED, null, item);
+    }
+
+    public static <T> BulkItemResult<T> failed(long index, String id, String error, T item) {
+        return new BulkItemResult<>(index, id, Status.FAILED, error, item);
+    }
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.filter;
+
+import com.reactivespring.util.RequestDeadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Puts the deadline of every request in its Reactor Context.
+ * Taken from the X-Request-Timeout header (milliseconds) when the caller sends one, never more than request.timeout.max.
+ * Without the header request.timeout.default applies, 0 (the default) leaves the request without a deadline.
+ * A request that is already past its deadline is answered with a 504 right away, without any work.
+ */
+@Component
+@Slf4j
+public class RequestDeadlineFilter implements WebFilter {
+
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+
+    public RequestDeadlineFilter(@Value("${request.timeout.default:0s}") Duration defaultTimeout,
+                                 @Value("${request.timeout.max:30s}") Duration maxTimeout) {
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var header = exchange.getRequest().getHeaders().getFirst(RequestDeadline.HEADER);
+        if (header == null) {
+            if (defaultTimeout.isZero()) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange)
+                    .contextWrite(RequestDeadline.after(defaultTimeout).into());
+        }
+        long timeoutMillis;
+        try {
+            timeoutMillis = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, RequestDeadline.HEADER + " must be a number of milliseconds"));
+        }
+        if (timeoutMillis <= 0) {
+            log.info("Dropping {} {}, its deadline has passed", exchange.getRequest().getMethod(), exchange.getRequest().getPath());
+            exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+            return exchange.getResponse().setComplete();
+        }
+        var timeout = Duration.ofMillis(timeoutMillis);
+        return chain.filter(exchange)
+                .contextWrite(RequestDeadline.after(timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout).into());
+    }
+}
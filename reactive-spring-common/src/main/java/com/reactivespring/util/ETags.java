@@ -0,0 +1,65 @@
+package com.reactivespring.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Strong ETags computed from the id, the version and the field values of the documents of a response, the body is not
+ * serialized for it.
+ *
+ * The version alone is not enough: it starts over at 0 when a document is deleted and created again under the same id,
+ * or posted again over an existing one, with different content. Spring answers 304 Not Modified on its own when the
+ * If-None-Match header of a GET holds the ETag of the response.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * The documents in the order they are sent, another order is another tag
+     */
+    public static <T> String of(Collection<T> documents, Function<T, List<?>> values) {
+        var digest = sha256();
+        for (T document : documents) {
+            update(digest, values.apply(document));
+            // ends the document, [a, b][c] is not [a][b, c]
+            digest.update((byte) 1);
+        }
+        return format(digest);
+    }
+
+    /**
+     * One document, or an aggregate: the values it is made of
+     */
+    public static String ofValues(Object... values) {
+        var digest = sha256();
+        update(digest, Arrays.asList(values));
+        return format(digest);
+    }
+
+    private static void update(MessageDigest digest, List<?> values) {
+        for (Object value : values) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute the ETag", e);
+        }
+    }
+
+    private static String format(MessageDigest digest) {
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+    }
+}
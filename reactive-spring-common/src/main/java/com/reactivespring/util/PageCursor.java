@@ -0,0 +1,60 @@
+package com.reactivespring.util;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset (cursor) pagination on _id.
+ *
+ * The cursor is the opaque, url safe form of the last _id of a page, the next page starts right after it.
+ * No skip involved, so a deep page costs the same as the first one.
+ */
+public class PageCursor {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final int OBJECT_ID_BSON_TYPE = 7;
+
+    public static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the id the cursor points to, null for no cursor (first page)
+     * @throws IllegalArgumentException if the cursor was not produced by encode
+     */
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor : " + cursor);
+        }
+    }
+
+    /**
+     * _id holds either a generated ObjectId or a plain String given by the client.
+     * Mongo sorts every String before every ObjectId and $gt only compares values of the same type,
+     * so after a String id the next page is "the bigger Strings, then all the ObjectIds".
+     *
+     * The cursor only has the id as a String, what it was stored as comes from the declared id type of the entity
+     * (MongoPersistentProperty.getFieldType()). With a plain @Id String that is ObjectId: Spring Data stores a String
+     * that is a valid ObjectId as an ObjectId, any other String as is. Declared as String (@MongoId(FieldType.STRING)),
+     * an id that looks like an ObjectId is still a String.
+     *
+     * @param storedIdType what the id is stored as, ObjectId or String
+     */
+    public static Criteria after(String idProperty, Class<?> storedIdType, String afterId) {
+        if (ObjectId.class.equals(storedIdType) && ObjectId.isValid(afterId)) {
+            return Criteria.where(idProperty).gt(new ObjectId(afterId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(idProperty).gt(afterId),
+                Criteria.where(idProperty).type(OBJECT_ID_BSON_TYPE));
+    }
+}
@@ -0,0 +1,61 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times reactive operations from their subscription to their termination, tagged with the operation and the outcome
+ * (success, error or cancelled).
+ *
+ * A timer around a method that returns a Mono or a Flux only sees the assembly, the query runs once it is subscribed.
+ * That is all spring.data.repository.invocations measures for a reactive repository.
+ */
+public class ReactiveTimer {
+
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final Tags tags;
+
+    public ReactiveTimer(MeterRegistry meterRegistry, String name, String... tags) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.tags = Tags.of(tags);
+    }
+
+    public <T> Mono<T> time(String operation, Mono<T> mono) {
+        return Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return mono.doFinally(signalType -> stop(sample, operation, signalType));
+        });
+    }
+
+    public <T> Flux<T> time(String operation, Flux<T> flux) {
+        return Flux.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return flux.doFinally(signalType -> stop(sample, operation, signalType));
+        });
+    }
+
+    private void stop(Timer.Sample sample, String operation, SignalType signalType) {
+        sample.stop(Timer.builder(name)
+                .tags(tags)
+                .tag("operation", operation)
+                .tag("outcome", outcome(signalType))
+                .register(meterRegistry));
+    }
+
+    private static String outcome(SignalType signalType) {
+        switch (signalType) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.reactivespring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Opt-in tracing of a reactive chain, takes the place of .log() on the hot paths.
+ * e.g. flux.transform(reactiveTracing.flux("movieInfos.getAll"))
+ *
+ * Off by default, it then costs one map lookup per subscription.
+ * Switched on per name, at startup with tracing.names or at runtime with the tracing actuator endpoint, it logs
+ * - every Nth element, N being 1 / sampleRate, with its position and the time since the subscription
+ * - how the chain ended (complete, error or cancel), after how long and with how many elements
+ * The elements themselves are never logged. Nothing is logged either while the INFO level is off for this class.
+ */
+@Component
+@Slf4j
+public class ReactiveTracing {
+
+    private final double defaultSampleRate;
+    private final Map<String, Double> sampleRates = new ConcurrentHashMap<>();
+
+    public ReactiveTracing(@Value("${tracing.names:}") List<String> names,
+                           @Value("${tracing.sampleRate:0.01}") double defaultSampleRate) {
+        this.defaultSampleRate = defaultSampleRate;
+        names.forEach(name -> enable(name, null));
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String name) {
+        return flux -> Flux.defer(() -> {
+            var sampleRate = sampleRates.get(name);
+            if (sampleRate == null || !log.isInfoEnabled()) {
+                return flux;
+            }
+            var trace = new Trace(name, sampleRate);
+            return flux
+                    .doOnNext(element -> trace.next())
+                    .doFinally(trace::finished);
+        });
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String name) {
+        return mono -> Mono.defer(() -> {
+            var sampleRate = sampleRates.get(name);
+            if (sampleRate == null || !log.isInfoEnabled()) {
+                return mono;
+            }
+            var trace = new Trace(name, sampleRate);
+            return mono
+                    .doOnNext(element -> trace.next())
+                    .doFinally(trace::finished);
+        });
+    }
+
+    /**
+     * @param sampleRate null for tracing.sampleRate
+     */
+    public void enable(String name, Double sampleRate) {
+        sampleRates.put(name, sampleRate != null ? sampleRate : defaultSampleRate);
+    }
+
+    public void disable(String name) {
+        sampleRates.remove(name);
+    }
+
+    public Map<String, Double> getSampleRates() {
+        return new TreeMap<>(sampleRates);
+    }
+
+    private static final class Trace {
+        private final String name;
+        private final long samplePeriod;
+        private final long start = System.nanoTime();
+        private final AtomicLong elements = new AtomicLong();
+
+        private Trace(String name, double sampleRate) {
+            this.name = name;
+            this.samplePeriod = sampleRate > 0 ? Math.max(1, Math.round(1 / sampleRate)) : Long.MAX_VALUE;
+        }
+
+        private void next() {
+            var element = elements.incrementAndGet();
+            if (element % samplePeriod == 0) {
+                log.info("{} : element {} after {}ms", name, element, elapsedMillis());
+            }
+        }
+
+        private void finished(SignalType signalType) {
+            log.info("{} : {} after {}ms, {} elements", name, signalType, elapsedMillis(), elements.get());
+        }
+
+        private long elapsedMillis() {
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+}
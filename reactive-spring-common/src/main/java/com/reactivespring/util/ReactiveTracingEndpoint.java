@@ -0,0 +1,43 @@
+package com.reactivespring.util;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Switches ReactiveTracing on and off at runtime
+ * - GET /actuator/tracing lists the traced names with their sample rate
+ * - POST /actuator/tracing {"name": "...", "sampleRate": 0.1} starts tracing a name, the sample rate is optional
+ * - DELETE /actuator/tracing/{name} stops it
+ */
+@Component
+@Endpoint(id = "tracing")
+public class ReactiveTracingEndpoint {
+
+    private final ReactiveTracing reactiveTracing;
+
+    public ReactiveTracingEndpoint(ReactiveTracing reactiveTracing) {
+        this.reactiveTracing = reactiveTracing;
+    }
+
+    @ReadOperation
+    public Map<String, Double> sampleRates() {
+        return reactiveTracing.getSampleRates();
+    }
+
+    @WriteOperation
+    public void enable(String name, @Nullable Double sampleRate) {
+        reactiveTracing.enable(name, sampleRate);
+    }
+
+    @DeleteOperation
+    public void disable(@Selector String name) {
+        reactiveTracing.disable(name);
+    }
+}
@@ -0,0 +1,115 @@
+package com.reactivespring.util;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Point in time by which the caller wants its answer, carried in the Reactor Context of the request.
+ * Outgoing calls and retries read it to never outlive the caller, queries are cut short once it is reached.
+ *
+ * Travels between the services as the X-Request-Timeout header, the milliseconds left when the request was sent.
+ */
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final String CONTEXT_KEY = RequestDeadline.class.getName();
+
+    private volatile long deadlineNanos;
+    // how far join can push the deadline back, the deadline itself unless it is shared
+    private final long maxNanos;
+
+    private RequestDeadline(long deadlineNanos, long maxNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public static RequestDeadline after(Duration timeout) {
+        var deadlineNanos = System.nanoTime() + timeout.toNanos();
+        return new RequestDeadline(deadlineNanos, deadlineNanos);
+    }
+
+    /**
+     * Deadline of a call shared by several callers: the latest deadline of the callers that joined it, never more than
+     * max from now. Already expired until a first caller joins.
+     */
+    public static RequestDeadline shared(Duration max) {
+        var now = System.nanoTime();
+        return new RequestDeadline(now, now + max.toNanos());
+    }
+
+    /**
+     * Pushes a shared deadline back to the one of a caller joining the call, up to its max.
+     * A caller without a deadline pushes it to the max. Never brings the deadline closer.
+     */
+    public synchronized void join(Optional<RequestDeadline> caller) {
+        var target = caller.map(deadline -> deadline.deadlineNanos)
+                .filter(callerNanos -> callerNanos - maxNanos < 0)
+                .orElse(maxNanos);
+        if (target - deadlineNanos > 0) {
+            deadlineNanos = target;
+        }
+    }
+
+    /**
+     * e.g. mono.contextWrite(RequestDeadline.after(timeout).into())
+     */
+    public Function<Context, Context> into() {
+        return context -> context.put(CONTEXT_KEY, this);
+    }
+
+    public static Optional<RequestDeadline> from(ContextView contextView) {
+        return contextView.getOrEmpty(CONTEXT_KEY);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Fails the call with a TimeoutException once the deadline of the request is reached, and cancels it.
+     * Without a deadline in the Context the call is left as is.
+     */
+    public static <T> Mono<T> enforce(Mono<T> call) {
+        return Mono.deferContextual(contextView -> from(contextView)
+                .map(deadline -> deadline.isExpired()
+                        ? Mono.<T>error(deadline.exceeded())
+                        : call.timeout(deadline.expiry()))
+                .orElse(call));
+    }
+
+    public static <T> Flux<T> enforce(Flux<T> call) {
+        return Flux.deferContextual(contextView -> from(contextView)
+                .map(deadline -> deadline.isExpired()
+                        ? Flux.<T>error(deadline.exceeded())
+                        // Flux.timeout(Duration) is per element, the remaining time is computed again for every element instead
+                        : call.timeout(deadline.expiry(), element -> deadline.expiry()))
+                .orElse(call));
+    }
+
+    /**
+     * Signals once the deadline is reached. A shared deadline can be pushed back while it is waited for,
+     * the wait then starts again with the time left.
+     */
+    private Mono<Long> expiry() {
+        return Mono.defer(() -> Mono.delay(remaining()))
+                .repeat(() -> !isExpired())
+                .filter(tick -> isExpired())
+                .next();
+    }
+
+    private TimeoutException exceeded() {
+        return new TimeoutException("Request deadline exceeded");
+    }
+}
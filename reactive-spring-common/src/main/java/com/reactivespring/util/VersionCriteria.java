@@ -0,0 +1,24 @@
+package com.reactivespring.util;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Optimistic locking on a version field that every update bumps with $inc.
+ *
+ * Documents written before the field existed, or saved without it, have none: they count as version 0,
+ * so a client that read the missing field as 0 can still update them. The first update sets it to 1.
+ */
+public final class VersionCriteria {
+
+    private VersionCriteria() {
+    }
+
+    public static Criteria is(String versionProperty, long version) {
+        if (version == 0) {
+            return new Criteria().orOperator(
+                    Criteria.where(versionProperty).is(0L),
+                    Criteria.where(versionProperty).exists(false));
+        }
+        return Criteria.where(versionProperty).is(version);
+    }
+}
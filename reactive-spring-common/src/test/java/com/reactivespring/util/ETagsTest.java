@@ -0,0 +1,39 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagsTest {
+
+    @Test
+    void ofValues() {
+        var eTag = ETags.ofValues("abc", 0L, "Batman Begins");
+        assertTrue(eTag.matches("\"[A-Za-z0-9_-]+\""), eTag);
+        assertEquals(eTag, ETags.ofValues("abc", 0L, "Batman Begins"));
+        assertNotEquals(eTag, ETags.ofValues("abc", 1L, "Batman Begins"));
+        // same id and version, other content: created again after a delete
+        assertNotEquals(eTag, ETags.ofValues("abc", 0L, "The Dark Knight"));
+    }
+
+    @Test
+    void ofValues_delimited() {
+        // "a1" then 0 is not "a" then 10
+        assertNotEquals(ETags.ofValues("a1", 0L), ETags.ofValues("a", 10L));
+    }
+
+    @Test
+    void of_documents() {
+        var eTag = ETags.of(List.of("a", "b"), List::of);
+        assertEquals(eTag, ETags.of(List.of("a", "b"), List::of));
+        assertNotEquals(eTag, ETags.of(List.of("b", "a"), List::of));
+        assertNotEquals(eTag, ETags.of(List.of("a"), List::of));
+        // the documents are delimited too
+        assertNotEquals(ETags.of(List.of(List.of("a", "b"), List.of("c")), document -> document),
+                ETags.of(List.of(List.of("a"), List.of("b", "c")), document -> document));
+    }
+}
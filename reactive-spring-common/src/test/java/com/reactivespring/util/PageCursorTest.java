@@ -0,0 +1,53 @@
+package com.reactivespring.util;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    static final String HEX_ID = "5f0c2d1e3a4b5c6d7e8f9012";
+
+    @Test
+    void encode_decode() {
+        assertEquals(HEX_ID, PageCursor.decode(PageCursor.encode(HEX_ID)));
+        assertEquals("abc", PageCursor.decode(PageCursor.encode("abc")));
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(" "));
+    }
+
+    @Test
+    void decode_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64!"));
+    }
+
+    @Test
+    void after_objectId() {
+        assertEquals(new Document("_id", new Document("$gt", new ObjectId(HEX_ID))),
+                PageCursor.after("_id", ObjectId.class, HEX_ID).getCriteriaObject());
+    }
+
+    @Test
+    void after_string() {
+        // not an ObjectId, stored as is even when the entity declares ObjectId
+        assertEquals(afterString("abc"), PageCursor.after("_id", ObjectId.class, "abc").getCriteriaObject());
+    }
+
+    @Test
+    void after_hexLookingString() {
+        // declared as String: looks like an ObjectId but was stored as a String, the bigger Strings come next
+        assertEquals(afterString(HEX_ID), PageCursor.after("_id", String.class, HEX_ID).getCriteriaObject());
+    }
+
+    private static Document afterString(String id) {
+        return new Document("$or", List.of(
+                new Document("_id", new Document("$gt", id)),
+                new Document("_id", new Document("$type", 7))));
+    }
+}
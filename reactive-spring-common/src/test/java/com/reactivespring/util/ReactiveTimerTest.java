@@ -0,0 +1,50 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveTimerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReactiveTimer timer = new ReactiveTimer(meterRegistry, "repository.operations", "repository", "TestRepository");
+
+    @Test
+    void time_fromSubscriptionToTermination() {
+        var flux = timer.time("findPage", Flux.just("a", "b").delayElements(Duration.ofMillis(50)));
+        // nothing measured before the subscription
+        assertEquals(0, meterRegistry.find("repository.operations").timers().size());
+
+        StepVerifier.create(flux)
+                .expectNext("a", "b")
+                .verifyComplete();
+
+        var timed = meterRegistry.get("repository.operations")
+                .tag("repository", "TestRepository")
+                .tag("operation", "findPage")
+                .tag("outcome", "success")
+                .timer();
+        assertEquals(1, timed.count());
+        assertTrue(timed.totalTime(TimeUnit.MILLISECONDS) >= 100);
+    }
+
+    @Test
+    void time_outcome() {
+        StepVerifier.create(timer.time("update", Mono.error(new IllegalStateException("down"))))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(timer.time("update", Mono.never()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(1, meterRegistry.get("repository.operations").tag("outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get("repository.operations").tag("outcome", "cancelled").timer().count());
+    }
+}
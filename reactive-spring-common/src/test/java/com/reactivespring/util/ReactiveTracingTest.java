@@ -0,0 +1,143 @@
+package com.reactivespring.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveTracingTest {
+
+    ReactiveTracing reactiveTracing = new ReactiveTracing(List.of("traced"), 0.5);
+
+    // what ReactiveTracing logs, captured instead of printed
+    Logger logger = (Logger) LoggerFactory.getLogger(ReactiveTracing.class);
+    ListAppender<ILoggingEvent> logged = new ListAppender<>();
+
+    @BeforeEach
+    void captureLog() {
+        logger.setLevel(Level.INFO);
+        logged.start();
+        logger.addAppender(logged);
+    }
+
+    @AfterEach
+    void releaseLog() {
+        logger.detachAppender(logged);
+        logger.setLevel(null);
+    }
+
+    private List<String> loggedLines() {
+        return logged.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void enableAndDisable() {
+        assertEquals(Map.of("traced", 0.5), reactiveTracing.getSampleRates());
+
+        reactiveTracing.enable("other", 1.0);
+        reactiveTracing.disable("traced");
+
+        assertEquals(Map.of("other", 1.0), reactiveTracing.getSampleRates());
+    }
+
+    @Test
+    void flux_signalsUnchanged() {
+        StepVerifier.create(Flux.range(1, 5).transform(reactiveTracing.flux("traced")))
+                .expectNext(1, 2, 3, 4, 5)
+                .verifyComplete();
+
+        StepVerifier.create(Flux.<Integer>error(new RuntimeException("boom")).transform(reactiveTracing.flux("traced")))
+                .expectErrorMessage("boom")
+                .verify();
+    }
+
+    @Test
+    void flux_logsSampledElementsAndTheEnd() {
+        Flux.range(1, 5).transform(reactiveTracing.flux("traced")).blockLast();
+
+        // a sample rate of 0.5 is every 2nd element, then the end of the chain with the element count
+        var lines = loggedLines();
+        assertEquals(3, lines.size(), lines.toString());
+        assertTrue(lines.get(0).matches("traced : element 2 after \\d+ms"), lines.get(0));
+        assertTrue(lines.get(1).matches("traced : element 4 after \\d+ms"), lines.get(1));
+        assertTrue(lines.get(2).matches("traced : onComplete after \\d+ms, 5 elements"), lines.get(2));
+    }
+
+    @Test
+    void flux_logsErrorAndCancel() {
+        Flux.<Integer>error(new RuntimeException("boom"))
+                .transform(reactiveTracing.flux("traced"))
+                .onErrorResume(ex -> Flux.empty())
+                .blockLast();
+        Flux.range(1, 5).transform(reactiveTracing.flux("traced")).take(1).blockLast();
+
+        var lines = loggedLines();
+        assertEquals(2, lines.size(), lines.toString());
+        assertTrue(lines.get(0).matches("traced : onError after \\d+ms, 0 elements"), lines.get(0));
+        assertTrue(lines.get(1).matches("traced : cancel after \\d+ms, 1 elements"), lines.get(1));
+    }
+
+    @Test
+    void mono_logsTheEnd() {
+        reactiveTracing.enable("tracedMono", 1.0);
+
+        Mono.just("value").transform(reactiveTracing.mono("tracedMono")).block();
+
+        var lines = loggedLines();
+        assertEquals(2, lines.size(), lines.toString());
+        assertTrue(lines.get(0).matches("tracedMono : element 1 after \\d+ms"), lines.get(0));
+        assertTrue(lines.get(1).matches("tracedMono : onComplete after \\d+ms, 1 elements"), lines.get(1));
+    }
+
+    @Test
+    void flux_notTraced() {
+        Flux.range(1, 5).transform(reactiveTracing.flux("other")).blockLast();
+
+        assertEquals(List.of(), loggedLines());
+    }
+
+    @Test
+    void flux_offWhenInfoIsOff() {
+        logger.setLevel(Level.WARN);
+
+        Flux.range(1, 5).transform(reactiveTracing.flux("traced")).blockLast();
+
+        assertEquals(List.of(), loggedLines());
+    }
+
+    @Test
+    void mono_signalsUnchanged() {
+        StepVerifier.create(Mono.just("value").transform(reactiveTracing.mono("traced")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    @Test
+    void flux_switchedAtSubscription() {
+        var source = Flux.range(1, 3);
+        var traced = source.transform(reactiveTracing.flux("later"));
+
+        // assembled before the name was switched on, still picked up by the next subscription
+        reactiveTracing.enable("later", null);
+        assertEquals(0.5, reactiveTracing.getSampleRates().get("later"));
+        StepVerifier.create(traced)
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,89 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestDeadlineTest {
+
+    @Test
+    void enforce_mono() {
+        StepVerifier.create(RequestDeadline.enforce(Mono.never())
+                        .contextWrite(RequestDeadline.after(Duration.ofMillis(50)).into()))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void enforce_expired() {
+        StepVerifier.create(RequestDeadline.enforce(Mono.just("value"))
+                        .contextWrite(RequestDeadline.after(Duration.ZERO).into()))
+                .expectError(TimeoutException.class)
+                .verify();
+    }
+
+    @Test
+    void enforce_noDeadline() {
+        StepVerifier.create(RequestDeadline.enforce(Mono.just("value")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    @Test
+    void enforce_fluxIsBoundAsAWhole() {
+        // every element comes within 20ms, a per element timeout would never fire
+        StepVerifier.create(RequestDeadline.enforce(Flux.interval(Duration.ofMillis(20)))
+                        .contextWrite(RequestDeadline.after(Duration.ofMillis(200)).into()))
+                .thenConsumeWhile(element -> true)
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shared_joinPushesBackUpToTheMax() {
+        var shared = RequestDeadline.shared(Duration.ofSeconds(5));
+        assertTrue(shared.isExpired());
+
+        shared.join(Optional.of(RequestDeadline.after(Duration.ofSeconds(1))));
+        assertBetween(Duration.ofMillis(900), Duration.ofSeconds(1), shared.remaining());
+
+        // an earlier deadline does not bring it closer
+        shared.join(Optional.of(RequestDeadline.after(Duration.ofMillis(100))));
+        assertBetween(Duration.ofMillis(900), Duration.ofSeconds(1), shared.remaining());
+
+        // capped at the max, as a caller without a deadline
+        shared.join(Optional.of(RequestDeadline.after(Duration.ofSeconds(30))));
+        assertBetween(Duration.ofMillis(4900), Duration.ofSeconds(5), shared.remaining());
+    }
+
+    @Test
+    void join_doesNotMoveAPlainDeadline() {
+        var deadline = RequestDeadline.after(Duration.ofMillis(100));
+        deadline.join(Optional.empty());
+        assertTrue(deadline.remaining().compareTo(Duration.ofMillis(100)) <= 0);
+    }
+
+    @Test
+    void enforce_sharedDeadlinePushedBack() {
+        var shared = RequestDeadline.shared(Duration.ofSeconds(5));
+        shared.join(Optional.of(RequestDeadline.after(Duration.ofMillis(100))));
+
+        StepVerifier.create(RequestDeadline.enforce(Mono.delay(Duration.ofMillis(300)))
+                        .contextWrite(shared.into()))
+                // pushed back after the wait for the first 100ms started
+                .then(() -> shared.join(Optional.of(RequestDeadline.after(Duration.ofSeconds(1)))))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    private static void assertBetween(Duration min, Duration max, Duration actual) {
+        assertTrue(actual.compareTo(min) >= 0 && actual.compareTo(max) <= 0, actual.toString());
+    }
+}
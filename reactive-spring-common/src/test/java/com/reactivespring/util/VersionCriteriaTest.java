@@ -0,0 +1,24 @@
+package com.reactivespring.util;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionCriteriaTest {
+
+    @Test
+    void is() {
+        assertEquals(new Document("version", 3L), VersionCriteria.is("version", 3).getCriteriaObject());
+    }
+
+    @Test
+    void is_zeroMatchesMissingField() {
+        assertEquals(new Document("$or", List.of(
+                        new Document("version", 0L),
+                        new Document("version", new Document("$exists", false)))),
+                VersionCriteria.is("version", 0).getCriteriaObject());
+    }
+}
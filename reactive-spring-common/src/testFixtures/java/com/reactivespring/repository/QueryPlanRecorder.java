@@ -0,0 +1,96 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Records the find commands the repositories send to mongo, then asks mongo for their winning plan.
+ * The plans checked are the ones of the queries Spring Data really builds, for derived finders as well as custom ones,
+ * so a renamed field or a changed query shows up.
+ *
+ * Registered as a bean of the test, e.g. @Import(QueryPlanRecorder.class) on a @DataMongoTest
+ */
+public class QueryPlanRecorder implements MongoClientSettingsBuilderCustomizer, CommandListener {
+
+    // the parts of a find that change its plan, the session and cluster fields can not be explained
+    private static final List<String> PLANNED_FIELDS = List.of("find", "filter", "sort", "projection", "hint", "skip", "limit", "collation");
+
+    private final List<BsonDocument> finds = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        builder.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if ("find".equals(event.getCommandName())) {
+            // the event only holds on to the command while it is being sent
+            var find = new BsonDocument();
+            PLANNED_FIELDS.forEach(field -> {
+                if (event.getCommand().containsKey(field)) {
+                    find.append(field, event.getCommand().get(field).clone());
+                }
+            });
+            finds.add(find);
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+    }
+
+    /**
+     * Runs the query and fails if the winning plan of the find it sent contains a collection scan
+     */
+    public void assertNoCollectionScan(ReactiveMongoTemplate reactiveMongoTemplate, Publisher<?> query) {
+        finds.clear();
+        Flux.from(query).blockLast();
+        assertEquals(1, finds.size(), "find commands sent " + finds);
+        var find = finds.get(0);
+
+        var explain = reactiveMongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.runCommand(new BsonDocument("explain", find)
+                        .append("verbosity", new BsonString("queryPlanner")))))
+                .block();
+
+        var stages = new ArrayList<String>();
+        collectStages(explain.get("queryPlanner", Document.class).get("winningPlan"), stages);
+        assertFalse(stages.contains("COLLSCAN"), "winning plan " + stages + " for " + find.toJson());
+    }
+
+    // the plan shape changes between mongo versions (inputStage, inputStages, queryPlan...), so walk all of it
+    private void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document) {
+            var document = (Document) node;
+            if (document.get("stage") instanceof String) {
+                stages.add(document.getString("stage"));
+            }
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof List) {
+            ((List<?>) node).forEach(value -> collectStages(value, stages));
+        }
+    }
+}